@@ -0,0 +1,93 @@
+package com.euronext.pglite.spring.test;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One JDBC batch of {@code rows} inserts, through the driver's own batching or through the
+ * {@code pglite.copy-batch-inserts} COPY rewrite.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BatchInsertBenchmark {
+
+    @Param({"false", "true"})
+    public boolean copyBatchInserts;
+
+    @Param({"1000"})
+    public int rows;
+
+    private Path cacheDir;
+    private PgliteServerProcess server;
+    private SingleConnectionDataSource single;
+    private Connection connection;
+
+    @Setup(Level.Trial)
+    public void start() throws IOException, SQLException {
+        cacheDir = Files.createTempDirectory("pglite-bench-batch");
+        server = new PgliteServerProcess(PgliteBenchmarks.properties(cacheDir));
+        server.start();
+        single = PgliteBenchmarks.dataSource(server, "sslmode=disable");
+        DataSource dataSource = copyBatchInserts ? new PgliteCopyBatchDataSource(single) : single;
+        connection = dataSource.getConnection();
+        try (Statement ddl = connection.createStatement()) {
+            ddl.execute("CREATE TABLE bench_rows (id INTEGER, name TEXT, amount NUMERIC(12, 2))");
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void truncate() throws SQLException {
+        try (Statement ddl = connection.createStatement()) {
+            ddl.execute("TRUNCATE bench_rows");
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() throws IOException, SQLException {
+        connection.close();
+        PgliteBenchmarks.destroy(single);
+        server.close();
+        PgliteBenchmarks.deleteRecursively(cacheDir);
+    }
+
+    @Benchmark
+    public int[] insertBatch() throws SQLException {
+        try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT INTO bench_rows (id, name, amount) VALUES (?, ?, ?)")) {
+            for (int i = 0; i < rows; i++) {
+                insert.setInt(1, i);
+                insert.setString(2, "row-" + i);
+                insert.setBigDecimal(3, BigDecimal.valueOf(i, 2));
+                insert.addBatch();
+            }
+            return insert.executeBatch();
+        }
+    }
+}
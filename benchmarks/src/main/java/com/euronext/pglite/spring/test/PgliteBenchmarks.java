@@ -0,0 +1,77 @@
+package com.euronext.pglite.spring.test;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * Entry point of {@code benchmarks.jar}. Accepts the usual JMH command line, but writes
+ * {@code jmh-result.json} unless {@code -rf}/{@code -rff} say otherwise, so that runs of two
+ * versions can be compared file to file.
+ */
+public final class PgliteBenchmarks {
+
+    private PgliteBenchmarks() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions cli = new CommandLineOptions(args);
+        if (cli.shouldHelp() || cli.shouldList() || cli.shouldListWithParams() || cli.shouldListProfilers()
+                || cli.shouldListResultFormats()) {
+            org.openjdk.jmh.Main.main(args);
+            return;
+        }
+        ChainedOptionsBuilder options = new OptionsBuilder().parent(cli);
+        if (!cli.getResultFormat().hasValue()) {
+            options.resultFormat(ResultFormatType.JSON);
+        }
+        if (!cli.getResult().hasValue()) {
+            options.result("jmh-result.json");
+        }
+        new Runner(options.build()).run();
+    }
+
+    static PgliteProperties properties(Path cacheDir) {
+        PgliteProperties props = new PgliteProperties();
+        props.setRuntimeCacheDir(cacheDir.toString());
+        return props;
+    }
+
+    static SingleConnectionDataSource dataSource(PgliteServerProcess server, String params) {
+        SingleConnectionDataSource single = new SingleConnectionDataSource();
+        single.setSuppressClose(true);
+        single.setDriverClassName("org.postgresql.Driver");
+        single.setUrl(server.jdbcUrl(server.database(), params));
+        single.setUsername("postgres");
+        single.setPassword("");
+        return single;
+    }
+
+    static void destroy(DataSource dataSource) {
+        if (dataSource instanceof SingleConnectionDataSource single) {
+            single.destroy();
+        }
+    }
+
+    static void deleteRecursively(Path path) throws IOException {
+        if (path == null || !Files.exists(path)) {
+            return;
+        }
+        try (Stream<Path> stream = Files.walk(path)) {
+            stream.sorted(Comparator.reverseOrder()).forEach(p -> {
+                p.toFile().setWritable(true);
+                p.toFile().delete();
+            });
+        }
+    }
+}
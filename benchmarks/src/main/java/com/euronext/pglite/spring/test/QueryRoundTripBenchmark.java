@@ -0,0 +1,82 @@
+package com.euronext.pglite.spring.test;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of one tiny query through pgjdbc, the helper and PGlite, in pgjdbc's simple and
+ * extended query modes.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class QueryRoundTripBenchmark {
+
+    @Param({"simple", "extended"})
+    public String queryMode;
+
+    private Path cacheDir;
+    private PgliteServerProcess server;
+    private Connection connection;
+    private Statement statement;
+    private PreparedStatement prepared;
+
+    @Setup(Level.Trial)
+    public void start() throws IOException, SQLException {
+        cacheDir = Files.createTempDirectory("pglite-bench-query");
+        server = new PgliteServerProcess(PgliteBenchmarks.properties(cacheDir));
+        server.start();
+        connection = PgliteBenchmarks.dataSource(server, "sslmode=disable&preferQueryMode=" + queryMode)
+                .getConnection();
+        statement = connection.createStatement();
+        prepared = connection.prepareStatement("SELECT ?::int + 1");
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() throws IOException, SQLException {
+        connection.close();
+        server.close();
+        PgliteBenchmarks.deleteRecursively(cacheDir);
+    }
+
+    @Benchmark
+    public int selectLiteral() throws SQLException {
+        try (ResultSet rs = statement.executeQuery("SELECT 1")) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
+    @Benchmark
+    public int selectWithParameter() throws SQLException {
+        prepared.setInt(1, 41);
+        try (ResultSet rs = prepared.executeQuery()) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+}
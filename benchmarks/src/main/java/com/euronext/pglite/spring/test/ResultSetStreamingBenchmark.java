@@ -0,0 +1,92 @@
+package com.euronext.pglite.spring.test;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reading a large result set of wide rows, fully buffered ({@code fetchSize=0}) or through a
+ * cursor ({@code fetchSize>0}, which pgjdbc only honours inside a transaction).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ResultSetStreamingBenchmark {
+
+    @Param({"10000"})
+    public int rows;
+
+    @Param({"1024"})
+    public int payloadBytes;
+
+    @Param({"0", "500"})
+    public int fetchSize;
+
+    private Path cacheDir;
+    private PgliteServerProcess server;
+    private SingleConnectionDataSource single;
+    private Connection connection;
+
+    @Setup(Level.Trial)
+    public void start() throws IOException, SQLException {
+        cacheDir = Files.createTempDirectory("pglite-bench-stream");
+        server = new PgliteServerProcess(PgliteBenchmarks.properties(cacheDir));
+        server.start();
+        single = PgliteBenchmarks.dataSource(server, "sslmode=disable");
+        connection = single.getConnection();
+        try (Statement ddl = connection.createStatement()) {
+            ddl.execute("CREATE TABLE wide_rows (id INTEGER, payload TEXT)");
+            ddl.execute("INSERT INTO wide_rows SELECT g, repeat('x', " + payloadBytes + ") "
+                    + "FROM generate_series(1, " + rows + ") g");
+        }
+        connection.setAutoCommit(false);
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() throws IOException, SQLException {
+        connection.close();
+        PgliteBenchmarks.destroy(single);
+        server.close();
+        PgliteBenchmarks.deleteRecursively(cacheDir);
+    }
+
+    @Benchmark
+    public void readAll(Blackhole blackhole) throws SQLException {
+        try (PreparedStatement select = connection.prepareStatement("SELECT id, payload FROM wide_rows")) {
+            select.setFetchSize(fetchSize);
+            try (ResultSet rs = select.executeQuery()) {
+                while (rs.next()) {
+                    blackhole.consume(rs.getInt(1));
+                    blackhole.consume(rs.getString(2));
+                }
+            }
+        } finally {
+            connection.commit();
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.euronext.pglite.spring.test;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to a READY helper and the runtime extraction behind it. "Cold" uses an empty cache
+ * directory for every invocation; "warm" reuses one where the runtime is already extracted.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 10)
+@Fork(1)
+public class StartupBenchmark {
+
+    @State(Scope.Thread)
+    public static class ColdCache {
+        Path cacheDir;
+
+        @Setup(Level.Invocation)
+        public void create() throws IOException {
+            cacheDir = Files.createTempDirectory("pglite-bench-cold");
+        }
+
+        @TearDown(Level.Invocation)
+        public void delete() throws IOException {
+            PgliteBenchmarks.deleteRecursively(cacheDir);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class WarmCache {
+        Path cacheDir;
+
+        @Setup(Level.Trial)
+        public void extract() throws IOException {
+            cacheDir = Files.createTempDirectory("pglite-bench-warm");
+            new PgliteServerProcess(PgliteBenchmarks.properties(cacheDir)).extractRuntime();
+        }
+
+        @TearDown(Level.Trial)
+        public void delete() throws IOException {
+            PgliteBenchmarks.deleteRecursively(cacheDir);
+        }
+    }
+
+    @Benchmark
+    public int coldStart(ColdCache cache) throws IOException {
+        return startAndStop(cache.cacheDir);
+    }
+
+    @Benchmark
+    public int warmStart(WarmCache cache) throws IOException {
+        return startAndStop(cache.cacheDir);
+    }
+
+    @Benchmark
+    public Path extractRuntimeCold(ColdCache cache) {
+        return new PgliteServerProcess(PgliteBenchmarks.properties(cache.cacheDir)).extractRuntime();
+    }
+
+    @Benchmark
+    public Path extractRuntimeCached(WarmCache cache) {
+        return new PgliteServerProcess(PgliteBenchmarks.properties(cache.cacheDir)).extractRuntime();
+    }
+
+    private static int startAndStop(Path cacheDir) throws IOException {
+        try (PgliteServerProcess server = new PgliteServerProcess(PgliteBenchmarks.properties(cacheDir))) {
+            server.start();
+            return server.port();
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.euronext.pglite.spring.test;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A write-heavy test body: {@code rows} inserts and updates, each committed on its own, under
+ * {@code pglite.durability} FULL or NONE and with or without {@code pglite.unlogged-tables}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WriteDurabilityBenchmark {
+
+    @Param({"FULL", "NONE"})
+    public PgliteProperties.Durability durability;
+
+    @Param({"false", "true"})
+    public boolean unloggedTables;
+
+    @Param({"200"})
+    public int rows;
+
+    private Path cacheDir;
+    private PgliteServerProcess server;
+    private SingleConnectionDataSource single;
+    private Connection connection;
+
+    @Setup(Level.Trial)
+    public void start() throws IOException, SQLException {
+        cacheDir = Files.createTempDirectory("pglite-bench-durability");
+        PgliteProperties props = PgliteBenchmarks.properties(cacheDir);
+        props.setDurability(durability);
+        server = new PgliteServerProcess(props);
+        server.start();
+        single = PgliteBenchmarks.dataSource(server, "sslmode=disable");
+        DataSource dataSource = unloggedTables ? new PgliteUnloggedTablesDataSource(single) : single;
+        connection = dataSource.getConnection();
+        try (Statement ddl = connection.createStatement()) {
+            ddl.execute("CREATE TABLE bench_writes (id INTEGER PRIMARY KEY, name TEXT, hits INTEGER)");
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void truncate() throws SQLException {
+        try (Statement ddl = connection.createStatement()) {
+            ddl.execute("TRUNCATE bench_writes");
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() throws IOException, SQLException {
+        connection.close();
+        PgliteBenchmarks.destroy(single);
+        server.close();
+        PgliteBenchmarks.deleteRecursively(cacheDir);
+    }
+
+    @Benchmark
+    public int insertAndUpdate() throws SQLException {
+        int updated = 0;
+        try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT INTO bench_writes (id, name, hits) VALUES (?, ?, 0)");
+             PreparedStatement update = connection.prepareStatement(
+                     "UPDATE bench_writes SET hits = hits + 1 WHERE id = ?")) {
+            for (int i = 0; i < rows; i++) {
+                insert.setInt(1, i);
+                insert.setString(2, "row-" + i);
+                insert.executeUpdate();
+                update.setInt(1, i);
+                updated += update.executeUpdate();
+            }
+        }
+        return updated;
+    }
+}
@@ -9,6 +9,11 @@ NODE_VERSION="${NODE_VERSION:-24.11.0}"
 NODE_DIST="node-v${NODE_VERSION}-win-x64.zip"
 NODE_URL="${NODE_URL:-https://nodejs.org/dist/v${NODE_VERSION}/${NODE_DIST}}"
 NODE_SHA256="${NODE_SHA256:-}"
+# Ship only the files the helper actually loads (see scripts/runtime-trace); set to 0 for the full tree.
+SLIM_RUNTIME="${SLIM_RUNTIME:-1}"
+# Extra node_modules paths (shell globs, relative to the runtime dir) to keep in a slim bundle,
+# e.g. "node_modules/@electric-sql/pglite/dist/vector.tar.gz" for a PGlite extension.
+EXTRA_RUNTIME_FILES="${EXTRA_RUNTIME_FILES:-}"
 
 if ! command -v curl >/dev/null 2>&1; then
   echo "curl is required" >&2
@@ -58,11 +63,37 @@ popd >/dev/null
 rm -rf "$WORK_DIR/runtime/node_modules/.cache"
 
 pushd "$WORK_DIR/runtime" >/dev/null
+if [[ "$SLIM_RUNTIME" != "0" ]]; then
+  if ! command -v node >/dev/null 2>&1; then
+    echo "node is required to trace the runtime (or set SLIM_RUNTIME=0)" >&2
+    exit 1
+  fi
+  echo "Tracing files loaded by start.mjs" >&2
+  TRACE_OUTPUT="$WORK_DIR/traced.txt" node "$ROOT_DIR/scripts/runtime-trace/exercise.mjs" \
+    "$ROOT_DIR/scripts/runtime-trace/trace.mjs"
+  {
+    cat "$WORK_DIR/traced.txt"
+    # Node resolves package "exports"/"type" through package.json, and the lockfile test reads them.
+    find node_modules -name package.json -type f
+    for pattern in $EXTRA_RUNTIME_FILES; do
+      compgen -G "$pattern" || { echo "EXTRA_RUNTIME_FILES entry $pattern matched nothing" >&2; exit 1; }
+    done
+  } | sort -u > runtime-manifest.txt
+  echo "Keeping $(wc -l < runtime-manifest.txt) of $(find node_modules -type f | wc -l) node_modules files" >&2
+  find node_modules -type f | sort | comm -23 - runtime-manifest.txt | xargs -r rm -f
+  find node_modules -depth -type d -empty -delete
+  touch -t 202501010000 runtime-manifest.txt
+fi
 find node_modules -type f -exec touch -t 202501010000 {} +
 find node_modules -type d -exec touch -t 202501010000 {} +
 find node-win-x64 -type f -exec touch -t 202501010000 {} +
 find node-win-x64 -type d -exec touch -t 202501010000 {} +
-zip -X -9 -r "$OUT_ZIP" node-win-x64 node_modules > /dev/null
+rm -f "$OUT_ZIP"
+if [[ -f runtime-manifest.txt ]]; then
+  zip -X -9 -r "$OUT_ZIP" node-win-x64 node_modules runtime-manifest.txt > /dev/null
+else
+  zip -X -9 -r "$OUT_ZIP" node-win-x64 node_modules > /dev/null
+fi
 popd >/dev/null
 
 rm -rf "$WORK_DIR"
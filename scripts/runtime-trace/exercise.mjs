@@ -0,0 +1,69 @@
+/**
+ * Starts the helper under the tracer and drives every code path that loads files lazily:
+ * startup, a snapshot/restore round trip and a dump/load round trip. Then closes stdin so the
+ * helper shuts down and the tracer writes its manifest.
+ *
+ * Usage (from the runtime directory): TRACE_OUTPUT=<file> node <this script> <trace.mjs>
+ */
+
+import { spawn } from 'node:child_process';
+import { mkdtempSync, rmSync } from 'node:fs';
+import os from 'node:os';
+import path from 'node:path';
+import readline from 'node:readline';
+import { pathToFileURL } from 'node:url';
+
+const tracer = process.argv[2];
+const scratch = mkdtempSync(path.join(os.tmpdir(), 'pglite-trace-'));
+const dump = path.join(scratch, 'dump.tar');
+
+const commands = [
+  { cmd: 'snapshot', database: 'postgres', name: 'trace' },
+  { cmd: 'restore', database: 'postgres', name: 'trace' },
+  { cmd: 'dump', database: 'postgres', path: dump },
+  { cmd: 'load', database: 'postgres', path: dump },
+];
+
+const helper = spawn(process.execPath, ['--import', pathToFileURL(tracer).href, 'start.mjs'], {
+  env: { ...process.env, PGLITE_PORT: '0', PGLITE_LOG_LEVEL: 'ERROR' },
+  stdio: ['pipe', 'pipe', 'inherit'],
+});
+
+const timeout = setTimeout(() => {
+  console.error('Timed out while tracing the helper');
+  helper.kill('SIGKILL');
+  process.exit(1);
+}, 120_000);
+
+let next = 0;
+const send = () => {
+  if (next === commands.length) {
+    helper.stdin.end();
+    return;
+  }
+  helper.stdin.write(JSON.stringify({ id: next + 1, ...commands[next] }) + '\n');
+  next++;
+};
+
+readline.createInterface({ input: helper.stdout }).on('line', (line) => {
+  let message;
+  try {
+    message = JSON.parse(line);
+  } catch {
+    return;
+  }
+  if (message.event === 'ERROR' || (message.event === 'RESPONSE' && !message.ok)) {
+    console.error(`Helper failed while tracing: ${line}`);
+    helper.kill('SIGKILL');
+    process.exit(1);
+  }
+  if (message.event === 'READY' || message.event === 'RESPONSE') {
+    send();
+  }
+});
+
+helper.on('exit', (code) => {
+  clearTimeout(timeout);
+  rmSync(scratch, { recursive: true, force: true });
+  process.exit(code ?? 1);
+});
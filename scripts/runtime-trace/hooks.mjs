@@ -0,0 +1,17 @@
+/**
+ * Module customization hooks registered by trace.mjs; they run off the main thread and report
+ * every loaded file URL back through the port passed to initialize().
+ */
+
+let port;
+
+export async function initialize(data) {
+  port = data.port;
+}
+
+export async function load(url, context, nextLoad) {
+  if (url.startsWith('file:')) {
+    port.postMessage(url);
+  }
+  return nextLoad(url, context);
+}
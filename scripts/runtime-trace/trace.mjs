@@ -0,0 +1,65 @@
+/**
+ * Preloaded with `node --import` while build-runtime.sh exercises the helper. Records every file
+ * under node_modules that is imported (ESM load hook), required (CommonJS reads through fs) or
+ * read at runtime (e.g. pglite.wasm / pglite.data), and writes the sorted list, relative to the
+ * working directory, to $TRACE_OUTPUT when the process exits.
+ */
+
+import fs from 'node:fs';
+import { register, syncBuiltinESMExports } from 'node:module';
+import path from 'node:path';
+import { fileURLToPath } from 'node:url';
+import { MessageChannel } from 'node:worker_threads';
+
+const output = process.env.TRACE_OUTPUT;
+if (!output) {
+  throw new Error('TRACE_OUTPUT must name the manifest file to write');
+}
+
+const root = process.cwd();
+const seen = new Set();
+
+function record(target) {
+  if (target === undefined || target === null || typeof target === 'number') {
+    return;
+  }
+  let file;
+  if (target instanceof URL) {
+    if (target.protocol !== 'file:') return;
+    file = fileURLToPath(target);
+  } else if (typeof target === 'string' && target.startsWith('file:')) {
+    file = fileURLToPath(target);
+  } else {
+    file = path.resolve(root, target.toString());
+  }
+  const relative = path.relative(root, file).split(path.sep).join('/');
+  if (relative.startsWith('node_modules/')) {
+    seen.add(relative);
+  }
+}
+
+const { port1, port2 } = new MessageChannel();
+port1.on('message', record);
+port1.unref();
+register('./hooks.mjs', import.meta.url, { data: { port: port2 }, transferList: [port2] });
+
+for (const name of ['readFile', 'readFileSync', 'open', 'openSync', 'createReadStream']) {
+  const original = fs[name];
+  fs[name] = function traced(target, ...rest) {
+    record(target);
+    return original.call(this, target, ...rest);
+  };
+}
+for (const name of ['readFile', 'open']) {
+  const original = fs.promises[name];
+  fs.promises[name] = function traced(target, ...rest) {
+    record(target);
+    return original.call(this, target, ...rest);
+  };
+}
+// named imports such as `import { readFile } from 'node:fs/promises'` see the wrappers too
+syncBuiltinESMExports();
+
+process.on('exit', () => {
+  fs.writeFileSync(output, [...seen].sort().join('\n') + '\n');
+});
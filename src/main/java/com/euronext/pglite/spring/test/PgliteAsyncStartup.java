@@ -0,0 +1,77 @@
+package com.euronext.pglite.spring.test;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+
+/**
+ * A helper lease acquired on a background thread, so that extracting, spawning and waiting for
+ * READY overlaps with the rest of the application context refresh.
+ * <p>
+ * {@link PgliteContextInitializer} begins it before any bean definition is loaded; without the
+ * initializer, the auto-configuration begins it when it creates its own beans.
+ */
+final class PgliteAsyncStartup implements Closeable {
+    private static final Logger log = LoggerFactory.getLogger(PgliteAsyncStartup.class);
+
+    static final String BEAN_NAME = "pgliteAsyncStartup";
+
+    private final CompletableFuture<PgliteServerRegistry.Lease> lease = new CompletableFuture<>();
+
+    private PgliteAsyncStartup() {
+    }
+
+    static PgliteAsyncStartup begin(PgliteProperties props) {
+        PgliteAsyncStartup startup = new PgliteAsyncStartup();
+        Thread t = new Thread(() -> {
+            try {
+                startup.lease.complete(PgliteServerRegistry.acquire(props));
+            } catch (Throwable ex) {
+                startup.lease.completeExceptionally(ex);
+            }
+        }, "pglite-startup");
+        t.setDaemon(true);
+        t.start();
+        log.debug("Starting PGlite helper in the background");
+        return startup;
+    }
+
+    /** Waits for the helper; a failed start is rethrown on every call. */
+    PgliteServerRegistry.Lease lease() {
+        try {
+            return lease.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException("PGlite helper failed to start in the background", ex.getCause());
+        }
+    }
+
+    /** Runs {@code action} with the lease once the background start succeeded; nothing happens if it failed. */
+    void whenStarted(Consumer<PgliteServerRegistry.Lease> action) {
+        lease.thenAccept(action).exceptionally(ex -> {
+            if (!lease.isCompletedExceptionally()) {
+                log.warn("Failed to act on the started PGlite helper: {}", ex.getMessage());
+            }
+            return null;
+        });
+    }
+
+    /** Releases the lease, now or as soon as a still running start finishes. */
+    @Override
+    public void close() {
+        lease.thenAccept(acquired -> {
+            try {
+                acquired.close();
+            } catch (IOException ex) {
+                log.debug("Failed to release PGlite lease: {}", ex.getMessage());
+            }
+        });
+    }
+}
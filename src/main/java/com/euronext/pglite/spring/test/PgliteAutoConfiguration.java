@@ -1,49 +1,184 @@
 package com.euronext.pglite.spring.test;
 
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.SmartInitializingSingleton;
 import org.springframework.boot.autoconfigure.AutoConfiguration;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.context.annotation.Primary;
+import org.springframework.core.io.support.ResourcePatternResolver;
 import org.springframework.jdbc.datasource.SingleConnectionDataSource;
 import org.springframework.jdbc.datasource.TransactionAwareDataSourceProxy;
+import org.springframework.util.ClassUtils;
 
 import javax.sql.DataSource;
+import java.sql.SQLException;
 
 @AutoConfiguration
 @EnableConfigurationProperties(PgliteProperties.class)
 @ConditionalOnProperty(value = "pglite.enabled", havingValue = "true")
 public class PgliteAutoConfiguration {
     private static final Logger log = LoggerFactory.getLogger(PgliteAutoConfiguration.class);
+    private static final String HIKARI_DATA_SOURCE = "com.zaxxer.hikari.HikariDataSource";
 
-    @Bean(initMethod = "start", destroyMethod = "close")
-    PgliteServerProcess pgliteServerProcess(PgliteProperties props) {
-        return new PgliteServerProcess(
-                props.getHost(), props.getPort(), props.getStartupTimeout(), props.getNodeCommand(),
-                props.getPathPrepend(), props.getRuntimeDownloadUrlTemplate(), props.getRuntimeCacheDir(),
-                props.getRuntimeDownloadSha256Template(),
-                props.getUsername(), props.getPassword(), props.getLogLevel()
-        );
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(value = "pglite.async-startup", havingValue = "false", matchIfMissing = true)
+    PgliteServerRegistry.Lease pgliteServerLease(PgliteProperties props) {
+        return PgliteServerRegistry.acquire(props);
+    }
+
+    @Bean(name = PgliteAsyncStartup.BEAN_NAME, destroyMethod = "close")
+    @ConditionalOnProperty(value = "pglite.async-startup", havingValue = "true")
+    @ConditionalOnMissingBean(PgliteAsyncStartup.class)
+    PgliteAsyncStartup pgliteAsyncStartup(PgliteProperties props) {
+        return PgliteAsyncStartup.begin(props);
+    }
+
+    @Bean(destroyMethod = "close")
+    @Lazy
+    @ConditionalOnProperty(value = "pglite.async-startup", havingValue = "true")
+    PgliteServerRegistry.Lease pgliteAsyncServerLease(PgliteAsyncStartup startup) {
+        return startup.lease();
+    }
+
+    @Bean
+    @Lazy
+    @ConditionalOnProperty(value = "pglite.schema-cache-enabled", havingValue = "true")
+    PgliteSchemaCache pgliteSchemaCache(PgliteServerRegistry.Lease lease, PgliteProperties props,
+                                        ResourcePatternResolver resourcePatternResolver) {
+        PgliteSchemaCache cache = PgliteSchemaCache.create(lease, props, resourcePatternResolver);
+        if (cache != null) {
+            cache.loadIfPresent();
+        }
+        return cache;
     }
 
     @Bean
     @Primary
     @ConditionalOnMissingBean(DataSource.class)
-    DataSource dataSource(PgliteServerProcess server, PgliteProperties props) {
+    DataSource dataSource(ObjectProvider<PgliteServerRegistry.Lease> lease, PgliteProperties props,
+                          ObjectProvider<PgliteSchemaCache> schemaCache) {
+        if (props.isAsyncStartup()) {
+            log.info("PGlite DataSource created; the first connection waits for the helper starting in the background");
+            return new PgliteDeferredDataSource(() -> dataSource(lease.getObject(), props, schemaCache));
+        }
+        return dataSource(lease.getObject(), props, schemaCache);
+    }
+
+    /** Clones the worker databases once every singleton, and so Liquibase/Flyway, has been created. */
+    @Bean
+    SmartInitializingSingleton pgliteWorkerSeeding(ObjectProvider<DataSource> dataSource, PgliteProperties props) {
+        return () -> {
+            if (props.getWorkers() <= 1) {
+                return;
+            }
+            DataSource current = dataSource.getIfAvailable();
+            if (current instanceof PgliteDeferredDataSource deferred) {
+                // nothing connected yet: seed before the first connection is handed out
+                deferred.whenResolved(PgliteAutoConfiguration::seedWorkers);
+            } else if (current != null) {
+                seedWorkers(current);
+            }
+        };
+    }
+
+    private static void seedWorkers(DataSource dataSource) {
+        try {
+            if (dataSource.isWrapperFor(PgliteWorkerDataSource.class)) {
+                dataSource.unwrap(PgliteWorkerDataSource.class).seed();
+            }
+        } catch (SQLException ex) {
+            throw new IllegalStateException("Failed to seed PGlite worker databases", ex);
+        }
+    }
+
+    private static DataSource dataSource(PgliteServerRegistry.Lease lease, PgliteProperties props,
+                                         ObjectProvider<PgliteSchemaCache> schemaCache) {
+        // a cached schema must be loaded before anything can migrate through this DataSource
+        schemaCache.getIfAvailable();
+        if (props.getWorkers() > 1) {
+            log.info("PGlite DataSource ready: {} worker databases on {}", props.getWorkers(), lease.server().endpoint());
+            return new ClosingTransactionAwareProxy(new PgliteWorkerDataSource(lease, props.getWorkers(),
+                    props.getMaxConnections() <= 1,
+                    database -> physicalDataSource(lease, lease.server().jdbcUrl(database, props.getJdbcParams()), props)));
+        }
+        String url = lease.jdbcUrl(props.getJdbcParams());
+        DataSource dataSource = physicalDataSource(lease, url, props);
+        if (props.getMaxConnections() > 1) {
+            log.info("PGlite DataSource ready: {} (pool of up to {} connections)", url, props.getMaxConnections());
+            return dataSource;
+        }
+        log.info("PGlite DataSource ready: {} (single physical connection)", url);
+        return new ClosingTransactionAwareProxy(dataSource);
+    }
+
+    /** A connection (or pool) to {@code url} that re-connects after the helper was restarted. */
+    private static DataSource physicalDataSource(PgliteServerRegistry.Lease lease, String url, PgliteProperties props) {
+        if (props.getMaxConnections() > 1) {
+            if (!ClassUtils.isPresent(HIKARI_DATA_SOURCE, PgliteAutoConfiguration.class.getClassLoader())) {
+                throw new IllegalStateException("pglite.max-connections=" + props.getMaxConnections()
+                        + " requires HikariCP on the classpath");
+            }
+            return withCopyBatches(withUnloggedTables(HikariPool.create(lease, url, props), props), props);
+        }
         SingleConnectionDataSource single = new SingleConnectionDataSource();
         single.setSuppressClose(true);
         single.setAutoCommit(false);
         single.setDriverClassName("org.postgresql.Driver");
-
-        String url = server.jdbcUrl(props.getDatabase(), props.getJdbcParams());
         single.setUrl(url);
         single.setUsername(props.getUsername());
         single.setPassword(props.getPassword());
+        lease.onRestart(single::resetConnection);
+        // pass-through unless a @PgliteTest(isolation = ROLLBACK) method is running
+        return withCopyBatches(withUnloggedTables(new PgliteRollbackDataSource(single), props), props);
+    }
 
-        log.info("PGlite DataSource ready: {} (single physical connection)", url);
-        return new TransactionAwareDataSourceProxy(single);
+    private static DataSource withUnloggedTables(DataSource dataSource, PgliteProperties props) {
+        return props.isUnloggedTables() ? new PgliteUnloggedTablesDataSource(dataSource) : dataSource;
+    }
+
+    private static DataSource withCopyBatches(DataSource dataSource, PgliteProperties props) {
+        return props.isCopyBatchInserts() ? new PgliteCopyBatchDataSource(dataSource) : dataSource;
+    }
+
+    /**
+     * The proxy the context holds as its DataSource bean, which Spring's inferred destroy method
+     * closes; it passes that on to the connections underneath.
+     */
+    private static final class ClosingTransactionAwareProxy extends TransactionAwareDataSourceProxy
+            implements AutoCloseable {
+        ClosingTransactionAwareProxy(DataSource target) {
+            super(target);
+        }
+
+        @Override
+        public void close() throws Exception {
+            PgliteDelegatingDataSource.close(obtainTargetDataSource());
+        }
+    }
+
+    /** Kept in its own class so HikariCP stays an optional dependency. */
+    private static final class HikariPool {
+        static DataSource create(PgliteServerRegistry.Lease lease, String url, PgliteProperties props) {
+            HikariConfig config = new HikariConfig();
+            config.setPoolName("pglite");
+            config.setDriverClassName("org.postgresql.Driver");
+            config.setJdbcUrl(url);
+            config.setUsername(props.getUsername());
+            config.setPassword(props.getPassword());
+            config.setMaximumPoolSize(props.getMaxConnections());
+            config.setMinimumIdle(0);
+            HikariDataSource pool = new HikariDataSource(config);
+            // connections to the dead helper are replaced as soon as they are returned
+            lease.onRestart(() -> pool.getHikariPoolMXBean().softEvictConnections());
+            return pool;
+        }
     }
 }
@@ -1,11 +1,16 @@
 package com.euronext.pglite.spring.test;
 
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.beans.factory.support.DefaultSingletonBeanRegistry;
+import org.springframework.boot.context.properties.bind.Binder;
 import org.springframework.context.ApplicationContextInitializer;
 import org.springframework.context.ConfigurableApplicationContext;
 import org.springframework.test.context.support.TestPropertySourceUtils;
 
 /**
  * Convenience initializer for tests: enables PGlite without touching application properties.
+ * With {@code pglite.async-startup=true} it also starts the helper right away, before any bean
+ * definition is loaded.
  * Usage: @ContextConfiguration(initializers = PgliteContextInitializer.class)
  */
 public class PgliteContextInitializer implements ApplicationContextInitializer<ConfigurableApplicationContext> {
@@ -14,6 +19,17 @@ public class PgliteContextInitializer implements ApplicationContextInitializer<C
         TestPropertySourceUtils.addInlinedPropertiesToEnvironment(applicationContext,
                 "pglite.enabled=true"
         );
+        PgliteProperties props = Binder.get(applicationContext.getEnvironment())
+                .bind("pglite", PgliteProperties.class)
+                .orElseGet(PgliteProperties::new);
+        ConfigurableListableBeanFactory beanFactory = applicationContext.getBeanFactory();
+        if (props.isAsyncStartup() && !beanFactory.containsSingleton(PgliteAsyncStartup.BEAN_NAME)) {
+            PgliteAsyncStartup startup = PgliteAsyncStartup.begin(props);
+            beanFactory.registerSingleton(PgliteAsyncStartup.BEAN_NAME, startup);
+            if (beanFactory instanceof DefaultSingletonBeanRegistry registry) {
+                // released with the context, even when the refresh fails before the lease is used
+                registry.registerDisposableBean(PgliteAsyncStartup.BEAN_NAME, startup::close);
+            }
+        }
     }
 }
-
@@ -0,0 +1,235 @@
+package com.euronext.pglite.spring.test;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bidirectional control channel to one helper process.
+ * <p>
+ * The JVM listens on an ephemeral loopback port and passes it as {@code PGLITE_CONTROL_PORT}; the
+ * helper connects back once at startup. Every message in either direction is a frame of a 4-byte
+ * big-endian length followed by a UTF-8 JSON object. The helper's first frame must be
+ * {@code {"event":"HELLO","token":...}} carrying the random {@code PGLITE_CONTROL_TOKEN} of this
+ * spawn; connections that send anything else are closed, so another local process cannot take the
+ * channel over by connecting first. The helper then announces {@code {"event":"READY"}}
+ * (or {@code ERROR}) and answers each request {@code {"id":n,"cmd":...}} with
+ * {@code {"event":"RESPONSE","id":n,"ok":...}}. Helper logs stay on stdout/stderr and admin traffic
+ * never touches the PGWire listener.
+ */
+final class PgliteControlChannel implements Closeable {
+    private static final Logger log = LoggerFactory.getLogger(PgliteControlChannel.class);
+
+    private static final int MAX_FRAME = 64 * 1024 * 1024;
+    private static final int HELLO_TIMEOUT_MILLIS = 5_000;
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    /** Round-trip statistics for one command name, measured from sending the request to its response. */
+    record CommandLatency(long count, Duration total, Duration max) {
+        Duration mean() {
+            return count == 0 ? Duration.ZERO : total.dividedBy(count);
+        }
+
+        private CommandLatency plus(CommandLatency other) {
+            return new CommandLatency(count + other.count, total.plus(other.total),
+                    max.compareTo(other.max) >= 0 ? max : other.max);
+        }
+    }
+
+    private final ServerSocket server;
+    private final String token;
+    private final CompletableFuture<Map<String, Object>> ready = new CompletableFuture<>();
+    private final Map<Long, CompletableFuture<Map<String, Object>>> pending = new ConcurrentHashMap<>();
+    private final Map<String, CommandLatency> latencies = new ConcurrentHashMap<>();
+    private final AtomicLong ids = new AtomicLong();
+    private volatile Socket socket;
+    private volatile DataOutputStream out;
+
+    private PgliteControlChannel(ServerSocket server, String token) {
+        this.server = server;
+        this.token = token;
+    }
+
+    /** Binds the loopback listener and starts the daemon thread that accepts the helper and reads its frames. */
+    static PgliteControlChannel open() throws IOException {
+        ServerSocket server = new ServerSocket(0, 4, InetAddress.getByName("127.0.0.1"));
+        byte[] secret = new byte[32];
+        RANDOM.nextBytes(secret);
+        PgliteControlChannel channel = new PgliteControlChannel(server, HexFormat.of().formatHex(secret));
+        Thread reader = new Thread(channel::readLoop, "pglite-control");
+        reader.setDaemon(true);
+        reader.start();
+        return channel;
+    }
+
+    int port() {
+        return server.getLocalPort();
+    }
+
+    /** Secret the helper must present in its first frame, passed to it as {@code PGLITE_CONTROL_TOKEN}. */
+    String token() {
+        return token;
+    }
+
+    /** Completes with the READY message, or exceptionally on ERROR or when the channel goes away first. */
+    CompletableFuture<Map<String, Object>> ready() {
+        return ready;
+    }
+
+    /**
+     * Sends {@code name} with {@code arguments} and waits up to {@code timeout} for a successful
+     * response. The round trip is added to {@link #latencies()}.
+     */
+    Map<String, Object> request(String name, Map<String, Object> arguments, Duration timeout) {
+        DataOutputStream stream = out;
+        if (stream == null || !ready.isDone() || ready.isCompletedExceptionally()) {
+            throw new IllegalStateException("PGlite helper is not running");
+        }
+        long id = ids.incrementAndGet();
+        Map<String, Object> message = new LinkedHashMap<>();
+        message.put("id", id);
+        message.put("cmd", name);
+        message.putAll(arguments);
+
+        CompletableFuture<Map<String, Object>> response = new CompletableFuture<>();
+        pending.put(id, response);
+        long started = System.nanoTime();
+        try {
+            byte[] body = PgliteJson.write(message).getBytes(StandardCharsets.UTF_8);
+            synchronized (stream) {
+                stream.writeInt(body.length);
+                stream.write(body);
+                stream.flush();
+            }
+            Map<String, Object> result = response.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+            Duration elapsed = Duration.ofNanos(System.nanoTime() - started);
+            latencies.merge(name, new CommandLatency(1, elapsed, elapsed), CommandLatency::plus);
+            log.debug("PGlite helper completed '{}' in {} µs", name, elapsed.toNanos() / 1_000);
+            if (!Boolean.TRUE.equals(result.get("ok"))) {
+                throw new IllegalStateException("PGlite helper failed '" + name + "': " + result.get("error"));
+            }
+            return result;
+        } catch (IOException ex) {
+            throw new IllegalStateException("Failed to send '" + name + "' to PGlite helper", ex);
+        } catch (ExecutionException ex) {
+            throw new IllegalStateException("PGlite helper failed '" + name + "'", ex.getCause());
+        } catch (TimeoutException ex) {
+            throw new IllegalStateException("Timed out waiting for PGlite helper to complete '" + name + "'", ex);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for PGlite helper", ex);
+        } finally {
+            pending.remove(id);
+        }
+    }
+
+    /** Latency of every command sent so far, by command name. */
+    Map<String, CommandLatency> latencies() {
+        return Map.copyOf(latencies);
+    }
+
+    /** Fails readiness and every outstanding request, e.g. because the helper process exited. */
+    void fail(Throwable cause) {
+        ready.completeExceptionally(cause);
+        pending.values().forEach(response -> response.completeExceptionally(cause));
+    }
+
+    private void readLoop() {
+        try (Socket accepted = acceptHelper()) {
+            server.close();
+            accepted.setTcpNoDelay(true);
+            socket = accepted;
+            out = new DataOutputStream(new BufferedOutputStream(accepted.getOutputStream()));
+            DataInputStream in = new DataInputStream(new BufferedInputStream(accepted.getInputStream()));
+            while (true) {
+                dispatch(readFrame(in));
+            }
+        } catch (EOFException ex) {
+            fail(new IllegalStateException("PGlite helper closed its control channel"));
+        } catch (IOException | IllegalArgumentException ex) {
+            fail(new IllegalStateException("PGlite control channel failed: " + ex.getMessage(), ex));
+        }
+    }
+
+    /** Accepts connections until one presents this channel's token, closing every other one. */
+    private Socket acceptHelper() throws IOException {
+        while (true) {
+            Socket candidate = server.accept();
+            try {
+                candidate.setSoTimeout(HELLO_TIMEOUT_MILLIS);
+                Map<String, Object> hello = readFrame(new DataInputStream(candidate.getInputStream()));
+                if ("HELLO".equals(hello.get("event")) && hello.get("token") instanceof String presented
+                        && MessageDigest.isEqual(presented.getBytes(StandardCharsets.UTF_8), token.getBytes(StandardCharsets.UTF_8))) {
+                    candidate.setSoTimeout(0);
+                    return candidate;
+                }
+                log.warn("Rejected a PGlite control connection from {} without the helper's token", candidate.getRemoteSocketAddress());
+            } catch (IOException | IllegalArgumentException ex) {
+                log.warn("Rejected a PGlite control connection from {}: {}", candidate.getRemoteSocketAddress(), ex.getMessage());
+            }
+            candidate.close();
+        }
+    }
+
+    private static Map<String, Object> readFrame(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > MAX_FRAME) {
+            throw new IOException("Invalid control frame length " + length);
+        }
+        byte[] body = new byte[length];
+        in.readFully(body);
+        return PgliteJson.parseObject(new String(body, StandardCharsets.UTF_8));
+    }
+
+    private void dispatch(Map<String, Object> message) {
+        String event = String.valueOf(message.get("event")).toUpperCase(Locale.ROOT);
+        switch (event) {
+            case "READY" -> ready.complete(message);
+            case "ERROR" -> ready.completeExceptionally(
+                    new IllegalStateException("PGlite helper reported an error: " + message.get("message")));
+            case "RESPONSE" -> {
+                if (message.get("id") instanceof Number id) {
+                    CompletableFuture<Map<String, Object>> response = pending.get(id.longValue());
+                    if (response != null) {
+                        response.complete(message);
+                    }
+                }
+            }
+            default -> log.debug("Ignoring PGlite control message {}", message);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        fail(new IllegalStateException("PGlite control channel closed"));
+        server.close();
+        Socket connected = socket;
+        if (connected != null) {
+            connected.close();
+        }
+    }
+}
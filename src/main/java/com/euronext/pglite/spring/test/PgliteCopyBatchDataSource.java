@@ -0,0 +1,265 @@
+package com.euronext.pglite.spring.test;
+
+import org.postgresql.PGConnection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.io.StringReader;
+import java.lang.reflect.Method;
+import java.math.BigDecimal;
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Sends homogeneous INSERT batches as a single {@code COPY ... FROM STDIN}.
+ * <p>
+ * Statements prepared from {@code INSERT INTO t (a, b) VALUES (?, ?)} record their parameters
+ * while still passing every call to the driver. On {@code executeBatch()} the recorded rows are
+ * streamed with pgjdbc's CopyManager instead of being executed one by one, which turns one
+ * helper round-trip per row into one per batch. Anything the text COPY format cannot express
+ * (other SQL, unsupported parameter types, streams) falls back to the driver's own batch.
+ */
+final class PgliteCopyBatchDataSource extends PgliteDelegatingDataSource {
+    private static final Logger log = LoggerFactory.getLogger(PgliteCopyBatchDataSource.class);
+
+    private static final Pattern INSERT = Pattern.compile(
+            "\\s*insert\\s+into\\s+([\\w.\"]+)\\s*\\(([^)]+)\\)\\s*values\\s*\\(([\\s?,]+)\\)\\s*;?\\s*",
+            Pattern.CASE_INSENSITIVE);
+
+    PgliteCopyBatchDataSource(DataSource target) {
+        super(target);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return wrap(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return wrap(super.getConnection(username, password));
+    }
+
+    private static Connection wrap(Connection target) {
+        return PgliteJdbcHandler.proxy(Connection.class, new ConnectionHandler(target));
+    }
+
+    /**
+     * Returns the {@code COPY} statement equivalent to {@code sql}, or {@code null} when the
+     * statement is not a plain single-row INSERT with one placeholder per column.
+     */
+    static String copyStatement(String sql) {
+        Matcher matcher = INSERT.matcher(sql);
+        if (!matcher.matches()) {
+            return null;
+        }
+        String columns = matcher.group(2);
+        String placeholders = matcher.group(3);
+        long placeholderCount = placeholders.chars().filter(c -> c == '?').count();
+        if (placeholderCount != columns.split(",").length
+                || !placeholders.replaceAll("\\s", "").matches("\\?(,\\?)*")) {
+            return null;
+        }
+        return "COPY " + matcher.group(1) + " (" + columns.trim() + ") FROM STDIN";
+    }
+
+    /**
+     * Renders a parameter in COPY text format, or returns {@code null} when the value has no
+     * faithful text form here.
+     */
+    static String encode(Object value) {
+        if (value == null) {
+            return "\\N";
+        }
+        String text;
+        if (value instanceof String || value instanceof Character || value instanceof UUID
+                || value instanceof Integer || value instanceof Long || value instanceof Short
+                || value instanceof Byte || value instanceof Double || value instanceof Float
+                || value instanceof LocalDate || value instanceof LocalDateTime
+                || value instanceof LocalTime || value instanceof OffsetDateTime
+                || value instanceof java.sql.Date || value instanceof java.sql.Time) {
+            text = value.toString();
+        } else if (value instanceof BigDecimal decimal) {
+            text = decimal.toPlainString();
+        } else if (value instanceof Boolean flag) {
+            text = flag ? "t" : "f";
+        } else if (value instanceof Timestamp timestamp) {
+            // same instant pgjdbc would send: local time plus the JVM zone offset
+            LocalDateTime local = timestamp.toLocalDateTime();
+            text = OffsetDateTime.of(local, ZoneId.systemDefault().getRules().getOffset(local)).toString();
+        } else if (value instanceof byte[] bytes) {
+            return "\\\\x" + HexFormat.of().formatHex(bytes);
+        } else {
+            return null;
+        }
+        StringBuilder sb = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '\\' -> sb.append("\\\\");
+                case '\t' -> sb.append("\\t");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                default -> sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    private static final class ConnectionHandler extends PgliteJdbcHandler {
+        private final Connection connection;
+
+        private ConnectionHandler(Connection target) {
+            super(target);
+            this.connection = target;
+        }
+
+        @Override
+        <T extends Statement> T wrapStatement(T statement, Class<T> type, Object[] args) {
+            if (type == PreparedStatement.class && args.length == 1) {
+                String copy = copyStatement((String) args[0]);
+                if (copy != null) {
+                    return type.cast(PgliteJdbcHandler.proxy(PreparedStatement.class,
+                            new StatementHandler(connection, (PreparedStatement) statement, copy)));
+                }
+            }
+            return statement;
+        }
+    }
+
+    private static final class StatementHandler extends PgliteJdbcHandler {
+        private final Connection connection;
+        private final PreparedStatement statement;
+        private final String copy;
+        private final List<String[]> rows = new ArrayList<>();
+        private String[] current = new String[0];
+        private boolean copyable = true;
+
+        private StatementHandler(Connection connection, PreparedStatement target, String copy) {
+            super(target);
+            this.connection = connection;
+            this.statement = target;
+            this.copy = copy;
+        }
+
+        @Override
+        Object handle(Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            switch (name) {
+                case "executeBatch":
+                    return executeBatch(method);
+                case "addBatch":
+                    if (args == null) {
+                        rows.add(current.clone());
+                    } else {
+                        copyable = false;
+                    }
+                    break;
+                case "clearBatch":
+                    rows.clear();
+                    copyable = true;
+                    break;
+                case "clearParameters":
+                    current = new String[0];
+                    break;
+                default:
+                    if (name.startsWith("set") && args != null && args.length >= 2
+                            && method.getParameterTypes()[0] == int.class) {
+                        record(method, args);
+                    }
+                    break;
+            }
+            return forward(method, args);
+        }
+
+        private void record(Method method, Object[] args) {
+            int index = (Integer) args[0];
+            Object value;
+            switch (method.getName()) {
+                case "setNull" -> value = null;
+                case "setObject", "setString", "setBoolean", "setByte", "setShort", "setInt", "setLong",
+                     "setFloat", "setDouble", "setBigDecimal", "setBytes", "setDate", "setTime",
+                     "setTimestamp" -> {
+                    // calendar variants and scale hints change the value pgjdbc would send
+                    boolean plain = args.length == 2 || ("setObject".equals(method.getName()) && args.length == 3);
+                    if (!plain) {
+                        copyable = false;
+                        return;
+                    }
+                    value = args[1];
+                }
+                default -> {
+                    copyable = false;
+                    return;
+                }
+            }
+            String encoded = encode(value);
+            if (encoded == null) {
+                copyable = false;
+                return;
+            }
+            if (index > current.length) {
+                current = Arrays.copyOf(current, index);
+            }
+            current[index - 1] = encoded;
+        }
+
+        private Object executeBatch(Method method) throws Throwable {
+            if (!copyable || rows.size() < 2 || !complete()) {
+                rows.clear();
+                copyable = true;
+                return forward(method, null);
+            }
+            StringBuilder data = new StringBuilder(rows.size() * 32);
+            for (String[] row : rows) {
+                data.append(String.join("\t", row)).append('\n');
+            }
+            int[] counts = new int[rows.size()];
+            rows.clear();
+            statement.clearBatch();
+            try {
+                long copied = connection.unwrap(PGConnection.class).getCopyAPI()
+                        .copyIn(copy, new StringReader(data.toString()));
+                log.debug("Copied {} rows with {}", copied, copy);
+            } catch (SQLException ex) {
+                throw new BatchUpdateException(ex.getMessage(), ex.getSQLState(), ex.getErrorCode(), new int[0], ex);
+            }
+            Arrays.fill(counts, 1);
+            return counts;
+        }
+
+        /** Every row must bind every placeholder, as the driver would otherwise reject the batch. */
+        private boolean complete() {
+            int width = -1;
+            for (String[] row : rows) {
+                if (width >= 0 && row.length != width) {
+                    return false;
+                }
+                width = row.length;
+                for (String value : row) {
+                    if (value == null) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+    }
+}
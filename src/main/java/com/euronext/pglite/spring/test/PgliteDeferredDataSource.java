@@ -0,0 +1,74 @@
+package com.euronext.pglite.spring.test;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Builds its target the first time it is used, which is when a connection, a log writer or a
+ * wrapped type is first asked for. With {@code pglite.async-startup} this is where the context
+ * waits for the helper, rather than while the DataSource bean is created.
+ */
+final class PgliteDeferredDataSource extends PgliteDelegatingDataSource {
+    private final Supplier<DataSource> factory;
+    private final List<Consumer<DataSource>> onResolved = new ArrayList<>();
+    private volatile DataSource target;
+
+    PgliteDeferredDataSource(Supplier<DataSource> factory) {
+        this.factory = factory;
+    }
+
+    @Override
+    protected DataSource obtainTargetDataSource() {
+        DataSource current = target;
+        if (current == null) {
+            synchronized (this) {
+                current = target;
+                if (current == null) {
+                    current = factory.get();
+                    for (Consumer<DataSource> action : onResolved) {
+                        action.accept(current);
+                    }
+                    onResolved.clear();
+                    target = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Runs {@code action} with the target as soon as it is built, before anyone else can use it,
+     * or straight away if it already is.
+     */
+    void whenResolved(Consumer<DataSource> action) {
+        DataSource current;
+        synchronized (this) {
+            current = target;
+            if (current == null) {
+                onResolved.add(action);
+                return;
+            }
+        }
+        action.accept(current);
+    }
+
+    /** Closes the target if it was built; a context that never connected has nothing to close. */
+    @Override
+    public void close() throws Exception {
+        DataSource current;
+        synchronized (this) {
+            current = target;
+        }
+        if (current != null) {
+            close(current);
+        }
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        // the target only exists once the helper is up
+    }
+}
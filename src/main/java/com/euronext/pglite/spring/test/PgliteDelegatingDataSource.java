@@ -0,0 +1,37 @@
+package com.euronext.pglite.spring.test;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+
+/**
+ * Base of the wrapping DataSources, which close along with their target.
+ * <p>
+ * A wrapper is what the context holds as its DataSource bean, so Spring's inferred destroy
+ * method only reaches the pool or connection underneath if the wrapper passes {@link #close()}
+ * on.
+ */
+abstract class PgliteDelegatingDataSource extends DelegatingDataSource implements AutoCloseable {
+
+    PgliteDelegatingDataSource() {
+    }
+
+    PgliteDelegatingDataSource(DataSource target) {
+        super(target);
+    }
+
+    @Override
+    public void close() throws Exception {
+        close(obtainTargetDataSource());
+    }
+
+    /** Closes a HikariCP pool or wrapper, or destroys a {@code SingleConnectionDataSource}. */
+    static void close(DataSource dataSource) throws Exception {
+        if (dataSource instanceof AutoCloseable closeable) {
+            closeable.close();
+        } else if (dataSource instanceof DisposableBean disposable) {
+            disposable.destroy();
+        }
+    }
+}
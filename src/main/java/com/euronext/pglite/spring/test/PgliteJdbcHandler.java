@@ -0,0 +1,85 @@
+package com.euronext.pglite.spring.test;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+
+/**
+ * Base of the JDBC proxies the wrapping DataSources hand out.
+ * <p>
+ * Answers {@code equals}, {@code hashCode}, {@code unwrap} and {@code isWrapperFor} for the proxy
+ * itself, forwards everything else to the target through {@link #handle} and passes statements
+ * the target returns to {@link #wrapStatement}, so subclasses only carry their own behaviour.
+ */
+abstract class PgliteJdbcHandler implements InvocationHandler {
+
+    final Object target;
+
+    PgliteJdbcHandler(Object target) {
+        this.target = target;
+    }
+
+    /** Returns a proxy of {@code type} backed by {@code handler}. */
+    static <T> T proxy(Class<T> type, PgliteJdbcHandler handler) {
+        return type.cast(Proxy.newProxyInstance(PgliteJdbcHandler.class.getClassLoader(), new Class<?>[]{type}, handler));
+    }
+
+    @Override
+    public final Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        switch (method.getName()) {
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "unwrap":
+                if (((Class<?>) args[0]).isInstance(proxy)) {
+                    return proxy;
+                }
+                break;
+            case "isWrapperFor":
+                if (((Class<?>) args[0]).isInstance(proxy)) {
+                    return true;
+                }
+                break;
+            default:
+                break;
+        }
+        Object result = handle(method, args);
+        if (result instanceof CallableStatement callable && method.getReturnType() == CallableStatement.class) {
+            return wrapStatement(callable, CallableStatement.class, args);
+        }
+        if (result instanceof PreparedStatement prepared && method.getReturnType() == PreparedStatement.class) {
+            return wrapStatement(prepared, PreparedStatement.class, args);
+        }
+        if (result instanceof Statement statement && method.getReturnType() == Statement.class) {
+            return wrapStatement(statement, Statement.class, args);
+        }
+        return result;
+    }
+
+    /** Runs a call on the target; the default forwards it unchanged. */
+    Object handle(Method method, Object[] args) throws Throwable {
+        return forward(method, args);
+    }
+
+    /** Calls {@code method} on the target, rethrowing what the target threw. */
+    final Object forward(Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException ex) {
+            throw ex.getTargetException();
+        }
+    }
+
+    /**
+     * Wraps a statement the target returned from the call made with {@code args}; the default
+     * returns it as is.
+     */
+    <T extends Statement> T wrapStatement(T statement, Class<T> type, Object[] args) {
+        return statement;
+    }
+}
@@ -0,0 +1,234 @@
+package com.euronext.pglite.spring.test;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.BaseUnits;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Publishes one helper to one context's Micrometer registry.
+ * <p>
+ * Nothing is registered until {@link #attach} hands over the context's lease, which with
+ * {@code pglite.async-startup} happens once the background start finished. The startup breakdown
+ * is recorded once as {@code pglite.startup} timers. The helper is then polled over its control
+ * channel: protocol batch latencies go into {@code pglite.helper.exec} timers (tagged by the
+ * batch's first message type), memory and per-database session/queue counts into gauges of the
+ * latest poll, statement cache hits and misses into {@code pglite.helper.statement.cache}
+ * counters, and the JVM-side round trip of every control command into {@code pglite.control}
+ * function timers. Restarts after a helper crash, with their total downtime, are the
+ * {@code pglite.helper.restart} function timer.
+ * <p>
+ * The helper drains its latency samples on every metrics command, so it is polled by a single
+ * {@link Poller} per helper, kept with the helper in the {@link PgliteServerRegistry}, that hands
+ * each poll to every context publishing it. The poller runs at the interval of the first context
+ * and stops when the last one closes.
+ */
+final class PgliteMetrics implements Closeable {
+    private static final Logger log = LoggerFactory.getLogger(PgliteMetrics.class);
+
+    private static final List<String> MEMORY_AREAS = List.of("rss", "heapTotal", "heapUsed", "external", "arrayBuffers");
+
+    private final MeterRegistry registry;
+    private final Duration interval;
+    private final Map<String, AtomicLong> gauges = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> counters = new ConcurrentHashMap<>();
+    private final Map<String, Timer> execTimers = new ConcurrentHashMap<>();
+    private final Set<String> controlCommands = ConcurrentHashMap.newKeySet();
+    private PgliteServerProcess server;
+    private Poller poller;
+    private Counter droppedSamples;
+    private boolean closed;
+
+    PgliteMetrics(MeterRegistry registry, Duration interval) {
+        this.registry = registry;
+        this.interval = interval;
+    }
+
+    /** Registers the meters of the lease's helper and joins its poller. */
+    synchronized void attach(PgliteServerRegistry.Lease lease) {
+        if (closed || poller != null) {
+            return;
+        }
+        this.server = lease.server();
+        PgliteServerProcess.StartupTimings timings = server.startupTimings();
+        if (timings != null) {
+            startupTimer("extract").record(timings.extraction());
+            startupTimer("spawn").record(timings.spawn());
+            startupTimer("ready").record(timings.ready());
+        }
+        for (String area : MEMORY_AREAS) {
+            gauge("pglite.helper.memory", "area", area, BaseUnits.BYTES);
+        }
+        FunctionTimer.builder("pglite.helper.restart", server, PgliteServerProcess::restartCount,
+                        process -> process.downtime().toNanos(), TimeUnit.NANOSECONDS)
+                .description("Automatic restarts of a crashed helper and the downtime until each replacement was ready")
+                .register(registry);
+        this.droppedSamples = Counter.builder("pglite.helper.exec.dropped")
+                .description("Batch latency samples the helper discarded because a poll interval overflowed")
+                .register(registry);
+        this.poller = lease.perServer(Poller.class, Poller::new);
+        poller.subscribe(this, interval);
+    }
+
+    /** Polls the helper now, publishing the result to every context attached to it. */
+    void poll() {
+        Poller current;
+        synchronized (this) {
+            current = poller;
+        }
+        if (current != null) {
+            current.poll();
+        }
+    }
+
+    private Timer startupTimer(String phase) {
+        return Timer.builder("pglite.startup")
+                .description("Helper startup: runtime extraction, process spawn and wait for READY")
+                .tag("phase", phase)
+                .register(registry);
+    }
+
+    private AtomicLong gauge(String name, String tag, String value, String unit) {
+        return gauges.computeIfAbsent(name + '|' + tag + '|' + value, key -> {
+            AtomicLong holder = new AtomicLong();
+            Gauge.builder(name, holder, AtomicLong::get).tag(tag, value).baseUnit(unit).register(registry);
+            return holder;
+        });
+    }
+
+    /** The helper reports running totals, which the counter follows. */
+    private AtomicLong statementCacheCounter(String database, String result) {
+        return counters.computeIfAbsent(database + '|' + result, key -> {
+            AtomicLong total = new AtomicLong();
+            FunctionCounter.builder("pglite.helper.statement.cache", total, AtomicLong::get)
+                    .description("Simple-protocol queries answered from, or added to, the helper's statement cache")
+                    .tag("database", database)
+                    .tag("result", result)
+                    .register(registry);
+            return total;
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private void record(Map<String, Object> metrics) {
+        if (metrics.get("memory") instanceof Map<?, ?> memory) {
+            for (String area : MEMORY_AREAS) {
+                if (memory.get(area) instanceof Number bytes) {
+                    gauge("pglite.helper.memory", "area", area, BaseUnits.BYTES).set(bytes.longValue());
+                }
+            }
+        }
+        if (metrics.get("databases") instanceof Map<?, ?> databases) {
+            databases.forEach((database, counts) -> {
+                Map<String, Object> values = (Map<String, Object>) counts;
+                gauge("pglite.helper.sessions", "database", database.toString(), BaseUnits.CONNECTIONS)
+                        .set(((Number) values.get("sessions")).longValue());
+                gauge("pglite.helper.queue.waiting", "database", database.toString(), BaseUnits.CONNECTIONS)
+                        .set(((Number) values.get("waiting")).longValue());
+                if (values.get("statementCache") instanceof Map<?, ?> cache) {
+                    statementCacheCounter(database.toString(), "hit").set(((Number) cache.get("hits")).longValue());
+                    statementCacheCounter(database.toString(), "miss").set(((Number) cache.get("misses")).longValue());
+                }
+            });
+        }
+        if (metrics.get("exec") instanceof Map<?, ?> exec) {
+            exec.forEach((type, samples) -> {
+                Timer timer = execTimers.computeIfAbsent(type.toString(), key -> Timer.builder("pglite.helper.exec")
+                        .description("PGlite execution time of one protocol batch inside the helper")
+                        .tag("type", key)
+                        .publishPercentileHistogram()
+                        .register(registry));
+                for (Object micros : (List<Object>) samples) {
+                    timer.record(((Number) micros).longValue(), TimeUnit.MICROSECONDS);
+                }
+            });
+        }
+        if (metrics.get("dropped") instanceof Number dropped && dropped.longValue() > 0) {
+            droppedSamples.increment(dropped.doubleValue());
+        }
+        for (String command : server.commandLatencies().keySet()) {
+            if (controlCommands.add(command)) {
+                FunctionTimer.builder("pglite.control", server,
+                                s -> latency(s, command).count(),
+                                s -> latency(s, command).total().toNanos(), TimeUnit.NANOSECONDS)
+                        .description("Round trip of control commands from the JVM to the helper")
+                        .tag("command", command)
+                        .register(registry);
+            }
+        }
+    }
+
+    private static PgliteControlChannel.CommandLatency latency(PgliteServerProcess server, String command) {
+        return server.commandLatencies().getOrDefault(command,
+                new PgliteControlChannel.CommandLatency(0, Duration.ZERO, Duration.ZERO));
+    }
+
+    @Override
+    public synchronized void close() {
+        closed = true;
+        if (poller != null) {
+            poller.unsubscribe(this);
+        }
+    }
+
+    /** Pulls the metrics of one helper for every context that publishes it. */
+    static final class Poller {
+        private final PgliteServerProcess server;
+        private final List<PgliteMetrics> subscribers = new CopyOnWriteArrayList<>();
+        private ScheduledExecutorService executor;
+
+        Poller(PgliteServerProcess server) {
+            this.server = server;
+        }
+
+        private synchronized void subscribe(PgliteMetrics metrics, Duration interval) {
+            subscribers.add(metrics);
+            if (executor == null) {
+                executor = Executors.newSingleThreadScheduledExecutor(r -> {
+                    Thread t = new Thread(r, "pglite-metrics");
+                    t.setDaemon(true);
+                    return t;
+                });
+                executor.scheduleWithFixedDelay(this::poll, 0, interval.toMillis(), TimeUnit.MILLISECONDS);
+            }
+        }
+
+        private synchronized void unsubscribe(PgliteMetrics metrics) {
+            subscribers.remove(metrics);
+            if (subscribers.isEmpty() && executor != null) {
+                executor.shutdownNow();
+                executor = null;
+            }
+        }
+
+        private void poll() {
+            Map<String, Object> metrics;
+            try {
+                metrics = server.helperMetrics();
+            } catch (IllegalStateException ex) {
+                log.debug("Skipping PGlite metrics poll: {}", ex.getMessage());
+                return;
+            }
+            for (PgliteMetrics subscriber : subscribers) {
+                subscriber.record(metrics);
+            }
+        }
+    }
+}
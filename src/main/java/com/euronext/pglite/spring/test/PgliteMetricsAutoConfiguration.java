@@ -0,0 +1,36 @@
+package com.euronext.pglite.spring.test;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+
+/**
+ * Publishes helper metrics through {@link PgliteMetrics} when Micrometer is on the classpath and the
+ * context has a {@link MeterRegistry}, e.g. from Spring Boot Actuator.
+ */
+@AutoConfiguration(after = PgliteAutoConfiguration.class,
+        afterName = "org.springframework.boot.actuate.autoconfigure.metrics.CompositeMeterRegistryAutoConfiguration")
+@ConditionalOnClass(MeterRegistry.class)
+@ConditionalOnBean({MeterRegistry.class, PgliteServerRegistry.Lease.class})
+@ConditionalOnProperty(value = "pglite.metrics-enabled", havingValue = "true", matchIfMissing = true)
+public class PgliteMetricsAutoConfiguration {
+
+    @Bean(destroyMethod = "close")
+    PgliteMetrics pgliteMetrics(ObjectProvider<PgliteServerRegistry.Lease> lease,
+                                ObjectProvider<PgliteAsyncStartup> asyncStartup,
+                                MeterRegistry registry, PgliteProperties props) {
+        PgliteMetrics metrics = new PgliteMetrics(registry, props.getMetricsInterval());
+        PgliteAsyncStartup startup = asyncStartup.getIfAvailable();
+        if (startup != null) {
+            // asking for the lease now would wait for the helper during the context refresh
+            startup.whenStarted(metrics::attach);
+        } else {
+            metrics.attach(lease.getObject());
+        }
+        return metrics;
+    }
+}
@@ -1,8 +1,13 @@
 package com.euronext.pglite.spring.test;
 
 import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
 
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 @ConfigurationProperties("pglite")
 public class PgliteProperties {
@@ -17,6 +22,27 @@ public class PgliteProperties {
         }
     }
 
+    public enum Transport {
+        /** Loopback TCP on {@link #getHost()}:{@link #getPort()}. */
+        TCP,
+        /** Unix domain socket in a private temporary directory; not available on Windows. */
+        UNIX
+    }
+
+    public enum BootMode {
+        /** Every PGlite instance runs initdb inside WASM. */
+        INITDB,
+        /** Instances load a pristine post-initdb image cached per PGlite version; the first one creates it. */
+        IMAGE
+    }
+
+    public enum Durability {
+        /** Postgres defaults: WAL, fsync and full page writes as on a real server. */
+        FULL,
+        /** fsync, synchronous_commit and full_page_writes off and minimal WAL; the data is thrown away anyway. */
+        NONE
+    }
+
     /** Enable auto-configuration. */
     private boolean enabled = false;
 
@@ -26,6 +52,9 @@ public class PgliteProperties {
     /** Port to bind; 0 means auto-pick a free port. */
     private int port = 0;
 
+    /** How JDBC reaches the helper; UNIX skips TCP and port allocation entirely. */
+    private Transport transport = Transport.TCP;
+
     /** Node executable command, e.g. "node" or "C:\\Program Files\\nodejs\\node.exe". */
     private String nodeCommand;
 
@@ -42,7 +71,7 @@ public class PgliteProperties {
     private String pathPrepend;
 
     /** Extra JDBC URL params appended after '?', without leading '&'. */
-    private String jdbcParams = "sslmode=disable&preferQueryMode=simple";
+    private String jdbcParams = "sslmode=disable";
 
     /** Optional fixed database name (defaults to 'postgres'). */
     private String database = "postgres";
@@ -50,7 +79,7 @@ public class PgliteProperties {
     /** Optional template for downloading a platform-specific runtime archive (e.g. https://.../runtime-{os}-{arch}.zip). */
     private String runtimeDownloadUrlTemplate;
 
-    /** Optional directory used to cache downloaded runtimes (defaults to system temp). */
+    /** Optional directory used to cache downloaded and extracted runtimes (defaults to system temp). */
     private String runtimeCacheDir;
 
     /**
@@ -62,12 +91,126 @@ public class PgliteProperties {
     /** Helper log level propagated to the Node runtime. */
     private LogLevel logLevel = LogLevel.defaultLevel();
 
+    /**
+     * Share one helper process between all application contexts in the JVM whose host, port, users,
+     * log level and runtime settings match. Each context gets its own logical database.
+     */
+    private boolean shareServer = false;
+
+    /**
+     * Maximum number of physical JDBC connections. 1 keeps the single-connection DataSource; larger
+     * values expose a bounded HikariCP pool whose connections the helper schedules one transaction
+     * at a time.
+     */
+    private int maxConnections = 1;
+
+    /**
+     * Send JDBC batches of plain {@code INSERT INTO t (..) VALUES (?, ..)} statements as one
+     * {@code COPY ... FROM STDIN} instead of one round-trip per row.
+     */
+    private boolean copyBatchInserts = false;
+
+    /**
+     * Number of pre-started helpers kept ready in the background once the first helper starts, so
+     * later contexts with the same settings skip the cold start. Only applies to auto-assigned ports.
+     */
+    private int standbyPoolSize = 0;
+
+    /**
+     * Start the helper on a background thread while the context refreshes; the DataSource only waits
+     * for it when the first connection is requested. {@link PgliteContextInitializer} starts it earliest.
+     */
+    private boolean asyncStartup = false;
+
+    /**
+     * Let Node keep compiled helper JavaScript (PGlite's Emscripten glue, pg-gateway) on disk under
+     * {@link #runtimeCacheDir}, so later helper starts skip parsing and compiling it. Needs Node 22.1+.
+     */
+    private boolean compileCache = false;
+
+    /** How new PGlite instances get their data directory; IMAGE caches it under {@link #runtimeCacheDir}. */
+    private BootMode bootMode = BootMode.INITDB;
+
+    /**
+     * Number of databases the DataSource routes threads to, for parallel JUnit execution. Above 1,
+     * every database is a PGlite instance on its own helper worker thread, seeded from the migrated
+     * primary database the first time a thread is routed to it.
+     */
+    private int workers = 1;
+
+    /**
+     * Named statements the helper keeps per database for simple-protocol queries (pgjdbc's
+     * {@code preferQueryMode=simple}) that differ only in inlined parameters; 0 disables the cache.
+     */
+    private int statementCacheSize = 0;
+
+    /**
+     * Row limit the helper applies to every Execute the client sent without one; the rows are then
+     * fetched and written to the socket in chunks of this size. 0 runs each Execute in one go.
+     */
+    private int fetchRows = 0;
+
+    /**
+     * How often a helper that died (e.g. WASM out of memory) is restarted on the same endpoint
+     * before the starter gives up; 0 leaves a dead helper down.
+     */
+    private int maxRestarts = 3;
+
+    /**
+     * Keep a copy of every snapshot on disk so a restarted helper gets them back, with each
+     * database restored to its latest snapshot. Otherwise a restarted helper starts empty.
+     */
+    private boolean restartRestoresSnapshot = false;
+
+    /** Publish helper metrics to Micrometer when a MeterRegistry bean exists. */
+    private boolean metricsEnabled = true;
+
+    /** How often helper memory, queue depth and query latency samples are pulled for Micrometer. */
+    private Duration metricsInterval = Duration.ofSeconds(10);
+
+    /** V8 old-generation heap limit of the helper in MiB ({@code --max-old-space-size}); Node's default when unset. */
+    private Integer nodeMaxOldSpaceSize;
+
+    /** V8 semi-space size of the helper in MiB ({@code --max-semi-space-size}); Node's default when unset. */
+    private Integer nodeMaxSemiSpaceSize;
+
+    /** Upper bound on the linear memory of every PGlite instance in the helper ({@code --wasm-max-mem-pages}). */
+    private DataSize wasmMaxMemory;
+
+    /** Linear memory every PGlite instance starts with, a multiple of 64KB; PGlite's default when unset. */
+    private DataSize initialMemory;
+
+    /**
+     * Postgres settings applied to every PGlite instance, e.g. {@code work_mem} or {@code shared_buffers}.
+     * Settings that Postgres only reads at server start are written with ALTER SYSTEM.
+     */
+    private Map<String, String> postgresSettings = new LinkedHashMap<>();
+
+    /** Crash safety Postgres works for; NONE presets the settings, which {@link #postgresSettings} can override. */
+    private Durability durability = Durability.FULL;
+
+    /** Rewrite {@code CREATE TABLE} statements sent through the DataSource to {@code CREATE UNLOGGED TABLE}. */
+    private boolean unloggedTables = false;
+
+    /**
+     * Cache the migrated database on disk under {@link #runtimeCacheDir}, keyed by a hash of the
+     * migration resources. On a hit the helper loads the cached data directory before any migration
+     * runs, so Liquibase/Flyway find nothing to do.
+     */
+    private boolean schemaCacheEnabled = false;
+
+    /** Resource patterns hashed into the schema cache key. */
+    private List<String> schemaCacheLocations = new ArrayList<>(List.of(
+            "classpath*:db/changelog/**", "classpath*:db/migration/**"));
+
     public boolean isEnabled() { return enabled; }
     public void setEnabled(boolean enabled) { this.enabled = enabled; }
     public String getHost() { return host; }
     public void setHost(String host) { this.host = host; }
     public int getPort() { return port; }
     public void setPort(int port) { this.port = port; }
+    public Transport getTransport() { return transport; }
+    public void setTransport(Transport transport) { this.transport = transport == null ? Transport.TCP : transport; }
     public String getNodeCommand() { return nodeCommand; }
     public void setNodeCommand(String nodeCommand) { this.nodeCommand = nodeCommand; }
     public Duration getStartupTimeout() { return startupTimeout; }
@@ -90,4 +233,50 @@ public class PgliteProperties {
     public void setRuntimeDownloadSha256Template(String runtimeDownloadSha256Template) { this.runtimeDownloadSha256Template = runtimeDownloadSha256Template; }
     public LogLevel getLogLevel() { return logLevel; }
     public void setLogLevel(LogLevel logLevel) { this.logLevel = logLevel == null ? LogLevel.defaultLevel() : logLevel; }
+    public boolean isShareServer() { return shareServer; }
+    public void setShareServer(boolean shareServer) { this.shareServer = shareServer; }
+    public int getMaxConnections() { return maxConnections; }
+    public void setMaxConnections(int maxConnections) { this.maxConnections = maxConnections; }
+    public boolean isCopyBatchInserts() { return copyBatchInserts; }
+    public void setCopyBatchInserts(boolean copyBatchInserts) { this.copyBatchInserts = copyBatchInserts; }
+    public int getStandbyPoolSize() { return standbyPoolSize; }
+    public void setStandbyPoolSize(int standbyPoolSize) { this.standbyPoolSize = standbyPoolSize; }
+    public boolean isAsyncStartup() { return asyncStartup; }
+    public void setAsyncStartup(boolean asyncStartup) { this.asyncStartup = asyncStartup; }
+    public boolean isCompileCache() { return compileCache; }
+    public void setCompileCache(boolean compileCache) { this.compileCache = compileCache; }
+    public BootMode getBootMode() { return bootMode; }
+    public void setBootMode(BootMode bootMode) { this.bootMode = bootMode == null ? BootMode.INITDB : bootMode; }
+    public int getWorkers() { return workers; }
+    public void setWorkers(int workers) { this.workers = workers; }
+    public int getStatementCacheSize() { return statementCacheSize; }
+    public void setStatementCacheSize(int statementCacheSize) { this.statementCacheSize = statementCacheSize; }
+    public int getFetchRows() { return fetchRows; }
+    public void setFetchRows(int fetchRows) { this.fetchRows = fetchRows; }
+    public int getMaxRestarts() { return maxRestarts; }
+    public void setMaxRestarts(int maxRestarts) { this.maxRestarts = maxRestarts; }
+    public boolean isRestartRestoresSnapshot() { return restartRestoresSnapshot; }
+    public void setRestartRestoresSnapshot(boolean restartRestoresSnapshot) { this.restartRestoresSnapshot = restartRestoresSnapshot; }
+    public boolean isMetricsEnabled() { return metricsEnabled; }
+    public void setMetricsEnabled(boolean metricsEnabled) { this.metricsEnabled = metricsEnabled; }
+    public Duration getMetricsInterval() { return metricsInterval; }
+    public void setMetricsInterval(Duration metricsInterval) { this.metricsInterval = metricsInterval; }
+    public Integer getNodeMaxOldSpaceSize() { return nodeMaxOldSpaceSize; }
+    public void setNodeMaxOldSpaceSize(Integer nodeMaxOldSpaceSize) { this.nodeMaxOldSpaceSize = nodeMaxOldSpaceSize; }
+    public Integer getNodeMaxSemiSpaceSize() { return nodeMaxSemiSpaceSize; }
+    public void setNodeMaxSemiSpaceSize(Integer nodeMaxSemiSpaceSize) { this.nodeMaxSemiSpaceSize = nodeMaxSemiSpaceSize; }
+    public DataSize getWasmMaxMemory() { return wasmMaxMemory; }
+    public void setWasmMaxMemory(DataSize wasmMaxMemory) { this.wasmMaxMemory = wasmMaxMemory; }
+    public DataSize getInitialMemory() { return initialMemory; }
+    public void setInitialMemory(DataSize initialMemory) { this.initialMemory = initialMemory; }
+    public Map<String, String> getPostgresSettings() { return postgresSettings; }
+    public void setPostgresSettings(Map<String, String> postgresSettings) { this.postgresSettings = postgresSettings; }
+    public Durability getDurability() { return durability; }
+    public void setDurability(Durability durability) { this.durability = durability == null ? Durability.FULL : durability; }
+    public boolean isUnloggedTables() { return unloggedTables; }
+    public void setUnloggedTables(boolean unloggedTables) { this.unloggedTables = unloggedTables; }
+    public boolean isSchemaCacheEnabled() { return schemaCacheEnabled; }
+    public void setSchemaCacheEnabled(boolean schemaCacheEnabled) { this.schemaCacheEnabled = schemaCacheEnabled; }
+    public List<String> getSchemaCacheLocations() { return schemaCacheLocations; }
+    public void setSchemaCacheLocations(List<String> schemaCacheLocations) { this.schemaCacheLocations = schemaCacheLocations; }
 }
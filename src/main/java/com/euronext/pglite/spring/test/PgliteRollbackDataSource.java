@@ -0,0 +1,196 @@
+package com.euronext.pglite.spring.test;
+
+import javax.sql.DataSource;
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Runs a test inside one transaction of the physical connection that is rolled back when the
+ * test ends, for {@code @PgliteTest(isolation = Isolation.ROLLBACK)}.
+ * <p>
+ * Between {@link #begin()} and {@link #end()} the transactions the application sees are
+ * savepoints of that outer transaction: {@code commit()} and {@code COMMIT} release the current
+ * savepoint and open the next one, {@code rollback()} and {@code ROLLBACK} roll back to it, and
+ * {@code BEGIN} starts a new one. Code that commits internally therefore still sees its own and
+ * earlier commits, while the final rollback discards all of them at once. Emulated auto-commit
+ * commits after every statement and rolls a failed one back to a fresh savepoint, and isolation
+ * and read-only changes are recorded rather than sent, since Postgres refuses them inside a
+ * transaction. Outside a test the connection is passed through untouched.
+ */
+final class PgliteRollbackDataSource extends PgliteDelegatingDataSource {
+
+    private static final String SAVEPOINT = "pglite_test_tx";
+    private static final String COMMIT = "RELEASE SAVEPOINT " + SAVEPOINT + "; SAVEPOINT " + SAVEPOINT;
+    private static final String ROLLBACK = "ROLLBACK TO SAVEPOINT " + SAVEPOINT;
+    private static final String RESTART = ROLLBACK + "; " + COMMIT;
+
+    private static final Pattern BEGIN_SQL = Pattern.compile(
+            "\\s*(?:begin|start\\s+transaction)(?:\\s+(?:work|transaction|isolation|read|deferrable|not)\\b[^;]*)?\\s*;?\\s*",
+            Pattern.CASE_INSENSITIVE);
+    private static final Pattern COMMIT_SQL = Pattern.compile(
+            "\\s*(?:commit|end)(?:\\s+(?:work|transaction))?\\s*;?\\s*", Pattern.CASE_INSENSITIVE);
+    private static final Pattern ROLLBACK_SQL = Pattern.compile(
+            "\\s*(?:rollback|abort)(?:\\s+(?:work|transaction))?\\s*;?\\s*", Pattern.CASE_INSENSITIVE);
+
+    private static final Set<String> SQL_METHODS = Set.of(
+            "prepareStatement", "prepareCall",
+            "execute", "executeQuery", "executeUpdate", "executeLargeUpdate", "addBatch");
+    private static final Set<String> EXECUTE_METHODS = Set.of(
+            "execute", "executeQuery", "executeUpdate", "executeLargeUpdate", "executeBatch", "executeLargeBatch");
+
+    private volatile boolean active;
+    private boolean autoCommit;
+    private boolean readOnly;
+    private int isolation = Connection.TRANSACTION_READ_COMMITTED;
+
+    PgliteRollbackDataSource(DataSource target) {
+        super(target);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return wrap(super.getConnection(), Connection.class);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return wrap(super.getConnection(username, password), Connection.class);
+    }
+
+    /** Commits whatever the context left open and starts the test's outer transaction. */
+    synchronized void begin() throws SQLException {
+        if (active) {
+            return;
+        }
+        Connection physical = obtainTargetDataSource().getConnection();
+        if (physical.getAutoCommit()) {
+            throw new IllegalStateException("ROLLBACK isolation needs a DataSource whose connection does not auto-commit");
+        }
+        physical.commit();
+        try (Statement statement = physical.createStatement()) {
+            statement.execute("SAVEPOINT " + SAVEPOINT);
+        }
+        autoCommit = false;
+        readOnly = false;
+        isolation = physical.getTransactionIsolation();
+        active = true;
+    }
+
+    /** Rolls back everything the test did, committed or not. */
+    synchronized void end() throws SQLException {
+        if (!active) {
+            return;
+        }
+        active = false;
+        obtainTargetDataSource().getConnection().rollback();
+    }
+
+    /** The SQL actually run for {@code sql} while a test is active. */
+    static String rewrite(String sql) {
+        if (BEGIN_SQL.matcher(sql).matches()) {
+            return "SAVEPOINT " + SAVEPOINT;
+        }
+        if (COMMIT_SQL.matcher(sql).matches()) {
+            return COMMIT;
+        }
+        if (ROLLBACK_SQL.matcher(sql).matches()) {
+            return ROLLBACK;
+        }
+        return sql;
+    }
+
+    private <T> T wrap(T target, Class<T> type) {
+        return PgliteJdbcHandler.proxy(type, new Handler(target, type == Connection.class ? (Connection) target : null));
+    }
+
+    private void run(Connection connection, String sql) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+
+    private final class Handler extends PgliteJdbcHandler {
+        private final Connection connection;
+
+        private Handler(Object target, Connection connection) {
+            super(target);
+            this.connection = connection;
+        }
+
+        @Override
+        Object handle(Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (active && connection != null) {
+                Object emulated = emulate(name, args);
+                if (emulated != null) {
+                    return emulated == Void.TYPE ? null : emulated;
+                }
+            }
+            if (active && SQL_METHODS.contains(name) && args != null && args.length > 0 && args[0] instanceof String sql) {
+                args[0] = rewrite(sql);
+            }
+            if (!active || connection != null || !autoCommit || !EXECUTE_METHODS.contains(name)) {
+                return forward(method, args);
+            }
+            Connection physical = ((Statement) target).getConnection();
+            Object result;
+            try {
+                result = forward(method, args);
+            } catch (SQLException ex) {
+                // like real auto-commit, a failed statement must not abort the ones after it
+                try {
+                    run(physical, RESTART);
+                } catch (SQLException restart) {
+                    ex.addSuppressed(restart);
+                }
+                throw ex;
+            }
+            run(physical, COMMIT);
+            return result;
+        }
+
+        @Override
+        <T extends Statement> T wrapStatement(T statement, Class<T> type, Object[] args) {
+            return wrap(statement, type);
+        }
+
+        /** Connection calls answered by the savepoint emulation; {@code null} when the call goes through. */
+        private Object emulate(String name, Object[] args) throws SQLException {
+            switch (name) {
+                case "commit":
+                    run(connection, COMMIT);
+                    return Void.TYPE;
+                case "rollback":
+                    if (args == null) {
+                        run(connection, ROLLBACK);
+                        return Void.TYPE;
+                    }
+                    return null;
+                case "getAutoCommit":
+                    return autoCommit;
+                case "setAutoCommit":
+                    if ((Boolean) args[0] && !autoCommit) {
+                        run(connection, COMMIT);
+                    }
+                    autoCommit = (Boolean) args[0];
+                    return Void.TYPE;
+                case "isReadOnly":
+                    return readOnly;
+                case "setReadOnly":
+                    readOnly = (Boolean) args[0];
+                    return Void.TYPE;
+                case "getTransactionIsolation":
+                    return isolation;
+                case "setTransactionIsolation":
+                    isolation = (Integer) args[0];
+                    return Void.TYPE;
+                default:
+                    return null;
+            }
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.euronext.pglite.spring.test;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.ResourcePatternResolver;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * On-disk cache of a migrated database, keyed by the migration resources.
+ * <p>
+ * {@link #loadIfPresent()} runs before the DataSource is handed out: on a hit the helper boots the
+ * context's database from the cached tarball, so migrations find every change set applied. On a
+ * miss the database is dumped once all singletons (including Liquibase/Flyway) are initialized.
+ */
+final class PgliteSchemaCache implements SmartInitializingSingleton {
+    private static final Logger log = LoggerFactory.getLogger(PgliteSchemaCache.class);
+
+    private final PgliteServerRegistry.Lease lease;
+    private final Path tarball;
+    private boolean hit;
+
+    private PgliteSchemaCache(PgliteServerRegistry.Lease lease, Path tarball) {
+        this.lease = lease;
+        this.tarball = tarball;
+    }
+
+    /**
+     * Returns {@code null} when none of the configured locations contains a migration resource,
+     * since an empty schema is not worth caching.
+     */
+    static PgliteSchemaCache create(PgliteServerRegistry.Lease lease, PgliteProperties props,
+                                    ResourcePatternResolver resolver) {
+        try {
+            Map<String, Resource> resources = resolve(props, resolver);
+            if (resources.isEmpty()) {
+                log.warn("PGlite schema cache enabled but no migration resources match {}",
+                        props.getSchemaCacheLocations());
+                return null;
+            }
+            String key = computeKey(resources, props);
+            Path tarball = lease.server().cacheBase().resolve("schema-" + key.substring(0, 32) + ".tar");
+            return new PgliteSchemaCache(lease, tarball);
+        } catch (IOException ex) {
+            throw new IllegalStateException("Failed to hash PGlite migration resources", ex);
+        }
+    }
+
+    void loadIfPresent() {
+        if (!Files.isRegularFile(tarball)) {
+            log.info("PGlite schema cache miss, migrations will run and be cached at {}", tarball);
+            return;
+        }
+        long started = System.nanoTime();
+        lease.load(tarball);
+        hit = true;
+        log.info("PGlite schema cache hit: loaded {} in {} ms", tarball, (System.nanoTime() - started) / 1_000_000);
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (hit || Files.isRegularFile(tarball)) {
+            return;
+        }
+        try {
+            Files.createDirectories(tarball.getParent());
+            lease.dump(tarball);
+            log.info("PGlite schema cache stored at {}", tarball);
+        } catch (IOException | IllegalStateException ex) {
+            log.warn("Failed to store PGlite schema cache at {}: {}", tarball, ex.getMessage());
+        }
+    }
+
+    Path tarball() {
+        return tarball;
+    }
+
+    /** Matching resources by their location-relative path, so the key is stable across checkouts. */
+    private static Map<String, Resource> resolve(PgliteProperties props, ResourcePatternResolver resolver)
+            throws IOException {
+        Map<String, Resource> resources = new TreeMap<>();
+        for (String location : props.getSchemaCacheLocations()) {
+            String base = baseOf(location);
+            for (Resource resource : resolver.getResources(location)) {
+                if (!resource.isReadable()) {
+                    continue;
+                }
+                String url = resource.getURL().toString();
+                int index = base.isEmpty() ? -1 : url.lastIndexOf(base);
+                resources.put(index >= 0 ? url.substring(index) : resource.getFilename(), resource);
+            }
+        }
+        return resources;
+    }
+
+    private static String baseOf(String location) {
+        String path = location.replaceFirst("^classpath\\*?:", "");
+        int wildcard = path.length();
+        for (char c : new char[]{'*', '?', '{'}) {
+            int index = path.indexOf(c);
+            if (index >= 0) {
+                wildcard = Math.min(wildcard, index);
+            }
+        }
+        path = path.substring(0, wildcard);
+        return path.startsWith("/") ? path.substring(1) : path;
+    }
+
+    private static String computeKey(Map<String, Resource> resources, PgliteProperties props) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 MessageDigest not available", ex);
+        }
+        digest.update(PgliteServerProcess.runtimeKey().getBytes(StandardCharsets.UTF_8));
+        // the cached data directory carries ALTER SYSTEM settings and unlogged tables
+        digest.update(PgliteServerProcess.postgresSettings(props).toString().getBytes(StandardCharsets.UTF_8));
+        digest.update(Boolean.toString(props.isUnloggedTables()).getBytes(StandardCharsets.UTF_8));
+        byte[] buffer = new byte[8192];
+        for (Map.Entry<String, Resource> entry : resources.entrySet()) {
+            digest.update(entry.getKey().getBytes(StandardCharsets.UTF_8));
+            try (InputStream in = entry.getValue().getInputStream()) {
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    digest.update(buffer, 0, read);
+                }
+            }
+        }
+        StringBuilder sb = new StringBuilder();
+        for (byte b : digest.digest()) {
+            sb.append(String.format(Locale.ROOT, "%02x", b));
+        }
+        return sb.toString();
+    }
+}
@@ -15,18 +15,21 @@ import java.nio.channels.FileLock;
 import java.net.InetAddress;
 import java.net.ServerSocket;
 import java.net.URL;
+import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
 import java.nio.file.StandardOpenOption;
 import java.time.Duration;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.security.DigestInputStream;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.Deque;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
@@ -34,14 +37,19 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
-import java.util.concurrent.CountDownLatch;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Pattern;
 import java.util.stream.Stream;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipInputStream;
 
 /**
  * Manages a single Node-based helper process that exposes PGlite over PGWire.
@@ -52,7 +60,21 @@ final class PgliteServerProcess implements Closeable {
     private static final String START_SCRIPT_RESOURCE = "/pglite/start.mjs";
     private static final String PACKAGE_JSON_RESOURCE = "/pglite/package.json";
     private static final String PACKAGE_LOCK_RESOURCE = "/pglite/package-lock.json";
+    private static final String EXTRACTION_MARKER = ".pglite-extracted";
     private static final int MAX_CAPTURED_LINES = 200;
+    private static final Duration SHUTDOWN_TIMEOUT = Duration.ofSeconds(5);
+    private static final long WASM_PAGE_SIZE = 64 * 1024;
+    private static final Map<String, String> NO_DURABILITY = Map.of(
+            "fsync", "off",
+            "synchronous_commit", "off",
+            "full_page_writes", "off",
+            "wal_level", "minimal",
+            // minimal WAL requires that no WAL senders are configured
+            "max_wal_senders", "0");
+    private static final Pattern SETTING_NAME = Pattern.compile("[A-Za-z_][A-Za-z0-9_.]*");
+
+    private static volatile String runtimeKey;
+    private static final AtomicBoolean compileCacheWarned = new AtomicBoolean();
 
     private final String host;
     private final int configuredPort;
@@ -65,12 +87,48 @@ final class PgliteServerProcess implements Closeable {
     private final String jdbcUsername;
     private final String jdbcPassword;
     private final PgliteProperties.LogLevel logLevel;
+    private final String database;
+    private final boolean multiDatabase;
+    private final boolean workerThreads;
+    private final int standbyPoolSize;
+    private final boolean compileCache;
+    private final PgliteProperties.BootMode bootMode;
+    private final PgliteProperties.Transport transport;
+    private final List<String> nodeFlags;
+    private final long initialMemory;
+    private final Map<String, String> postgresSettings;
+    private final int statementCacheSize;
+    private final int fetchRows;
+    private final int maxRestarts;
+    private final boolean restartRestoresSnapshots;
+    private final PgliteProperties properties;
+
+    /** Time spent extracting the runtime, starting the Node process and waiting for READY. */
+    record StartupTimings(Duration extraction, Duration spawn, Duration ready) {
+    }
 
     private volatile int port;
     private final AtomicReference<Process> processRef = new AtomicReference<>();
-    private final List<String> outputBuffer = Collections.synchronizedList(new ArrayList<>());
+    /**
+     * Last lines of helper output, appended by the reader thread of whichever instance spawned the
+     * helper. {@link #adopt} points this at the standby's deque, which that reader keeps filling, so
+     * the field is volatile and every access locks the deque it read rather than this instance.
+     */
+    private volatile Deque<String> outputBuffer = new ArrayDeque<>(MAX_CAPTURED_LINES);
+    private volatile PgliteControlChannel control;
     private ExecutorService ioPool;
     private Path runtimeDir;
+    private volatile Path socketPath;
+    private Duration extractionTime = Duration.ZERO;
+    private volatile StartupTimings startupTimings;
+    private volatile boolean closed;
+    private final List<Runnable> restartListeners = new CopyOnWriteArrayList<>();
+    private final AtomicInteger restarts = new AtomicInteger();
+    private final AtomicLong downtimeNanos = new AtomicLong();
+    /** Disk copies of the snapshots taken so far, by database and then name, oldest first. */
+    private final Map<String, Map<String, Path>> savedSnapshots = new LinkedHashMap<>();
+    private Path snapshotDir;
+    private int savedSnapshotFiles;
 
     PgliteServerProcess(String host, int configuredPort, Duration startupTimeout,
                         String nodeCommand, String pathPrepend,
@@ -78,33 +136,178 @@ final class PgliteServerProcess implements Closeable {
                         String runtimeDownloadSha256Template,
                         String jdbcUsername, String jdbcPassword,
                         PgliteProperties.LogLevel logLevel) {
-        this.host = Objects.requireNonNull(host);
-        this.configuredPort = configuredPort;
-        this.startupTimeout = Objects.requireNonNull(startupTimeout);
-        this.nodeCommand = nodeCommand;
-        this.pathPrepend = pathPrepend;
-        this.runtimeDownloadUrlTemplate = runtimeDownloadUrlTemplate;
-        this.runtimeCacheDir = runtimeCacheDir;
-        this.runtimeDownloadSha256Template = runtimeDownloadSha256Template;
-        this.jdbcUsername = jdbcUsername;
-        this.jdbcPassword = jdbcPassword;
-        this.logLevel = logLevel == null ? PgliteProperties.LogLevel.defaultLevel() : logLevel;
+        this(toProperties(host, configuredPort, startupTimeout, nodeCommand, pathPrepend,
+                runtimeDownloadUrlTemplate, runtimeCacheDir, runtimeDownloadSha256Template,
+                jdbcUsername, jdbcPassword, logLevel));
+    }
+
+    PgliteServerProcess(PgliteProperties props) {
+        this.host = Objects.requireNonNull(props.getHost());
+        this.configuredPort = props.getPort();
+        this.startupTimeout = Objects.requireNonNull(props.getStartupTimeout());
+        this.nodeCommand = props.getNodeCommand();
+        this.pathPrepend = props.getPathPrepend();
+        this.runtimeDownloadUrlTemplate = props.getRuntimeDownloadUrlTemplate();
+        this.runtimeCacheDir = props.getRuntimeCacheDir();
+        this.runtimeDownloadSha256Template = props.getRuntimeDownloadSha256Template();
+        this.jdbcUsername = props.getUsername();
+        this.jdbcPassword = props.getPassword();
+        this.logLevel = props.getLogLevel() == null ? PgliteProperties.LogLevel.defaultLevel() : props.getLogLevel();
+        this.database = props.getDatabase() == null || props.getDatabase().isBlank() ? "postgres" : props.getDatabase();
+        this.workerThreads = props.getWorkers() > 1;
+        this.multiDatabase = props.isShareServer() || workerThreads;
+        this.standbyPoolSize = props.getStandbyPoolSize();
+        this.compileCache = props.isCompileCache();
+        this.bootMode = props.getBootMode();
+        this.transport = effectiveTransport(props.getTransport());
+        this.nodeFlags = nodeFlags(props);
+        this.initialMemory = initialMemory(props);
+        this.postgresSettings = postgresSettings(props);
+        if (props.getStatementCacheSize() < 0) {
+            throw new IllegalStateException("pglite.statement-cache-size must not be negative, got "
+                    + props.getStatementCacheSize());
+        }
+        this.statementCacheSize = props.getStatementCacheSize();
+        if (props.getFetchRows() < 0) {
+            throw new IllegalStateException("pglite.fetch-rows must not be negative, got " + props.getFetchRows());
+        }
+        this.fetchRows = props.getFetchRows();
+        if (props.getMaxRestarts() < 0) {
+            throw new IllegalStateException("pglite.max-restarts must not be negative, got " + props.getMaxRestarts());
+        }
+        this.maxRestarts = props.getMaxRestarts();
+        this.restartRestoresSnapshots = props.isRestartRestoresSnapshot();
+        this.properties = props;
+    }
+
+    /** V8 flags placed before the helper script; WASM memory is capped in whole 64KB pages. */
+    static List<String> nodeFlags(PgliteProperties props) {
+        List<String> flags = new ArrayList<>();
+        if (props.getNodeMaxOldSpaceSize() != null) {
+            flags.add("--max-old-space-size=" + positive("node-max-old-space-size", props.getNodeMaxOldSpaceSize()));
+        }
+        if (props.getNodeMaxSemiSpaceSize() != null) {
+            flags.add("--max-semi-space-size=" + positive("node-max-semi-space-size", props.getNodeMaxSemiSpaceSize()));
+        }
+        if (props.getWasmMaxMemory() != null) {
+            long bytes = positive("wasm-max-memory", props.getWasmMaxMemory().toBytes());
+            flags.add("--wasm-max-mem-pages=" + (bytes + WASM_PAGE_SIZE - 1) / WASM_PAGE_SIZE);
+        }
+        return List.copyOf(flags);
+    }
+
+    /** Initial linear memory of each PGlite instance in bytes, or 0 for PGlite's default. */
+    static long initialMemory(PgliteProperties props) {
+        if (props.getInitialMemory() == null) {
+            return 0;
+        }
+        long bytes = positive("initial-memory", props.getInitialMemory().toBytes());
+        if (bytes % WASM_PAGE_SIZE != 0) {
+            throw new IllegalStateException("pglite.initial-memory must be a multiple of 64KB, got " + bytes + " bytes");
+        }
+        if (props.getWasmMaxMemory() != null && bytes > props.getWasmMaxMemory().toBytes()) {
+            throw new IllegalStateException("pglite.initial-memory " + props.getInitialMemory()
+                    + " exceeds pglite.wasm-max-memory " + props.getWasmMaxMemory());
+        }
+        return bytes;
+    }
+
+    /**
+     * Postgres settings keyed by lower-case name, in name order so equal settings give an equal
+     * helper environment; the helper rejects names Postgres does not know.
+     */
+    static Map<String, String> postgresSettings(PgliteProperties props) {
+        Map<String, String> settings = new TreeMap<>();
+        if (props.getDurability() == PgliteProperties.Durability.NONE) {
+            settings.putAll(NO_DURABILITY);
+        }
+        if (props.getPostgresSettings() != null) {
+            props.getPostgresSettings().forEach((name, value) -> {
+                if (name == null || !SETTING_NAME.matcher(name).matches()) {
+                    throw new IllegalStateException("Invalid Postgres setting name in pglite.postgres-settings: " + name);
+                }
+                if (value == null) {
+                    throw new IllegalStateException("Missing value for Postgres setting " + name);
+                }
+                settings.put(name.toLowerCase(Locale.ROOT), value);
+            });
+        }
+        return Collections.unmodifiableMap(settings);
+    }
+
+    private static <N extends Number> N positive(String property, N value) {
+        if (value.longValue() <= 0) {
+            throw new IllegalStateException("pglite." + property + " must be positive, got " + value);
+        }
+        return value;
+    }
+
+    private static PgliteProperties toProperties(String host, int configuredPort, Duration startupTimeout,
+                                                 String nodeCommand, String pathPrepend,
+                                                 String runtimeDownloadUrlTemplate, String runtimeCacheDir,
+                                                 String runtimeDownloadSha256Template,
+                                                 String jdbcUsername, String jdbcPassword,
+                                                 PgliteProperties.LogLevel logLevel) {
+        PgliteProperties props = new PgliteProperties();
+        props.setHost(host);
+        props.setPort(configuredPort);
+        props.setStartupTimeout(startupTimeout);
+        props.setNodeCommand(nodeCommand);
+        props.setPathPrepend(pathPrepend);
+        props.setRuntimeDownloadUrlTemplate(runtimeDownloadUrlTemplate);
+        props.setRuntimeCacheDir(runtimeCacheDir);
+        props.setRuntimeDownloadSha256Template(runtimeDownloadSha256Template);
+        props.setUsername(jdbcUsername);
+        props.setPassword(jdbcPassword);
+        props.setLogLevel(logLevel);
+        return props;
     }
 
     void start() {
         if (processRef.get() != null) {
             return;
         }
+        if (standbyPoolSize > 0 && configuredPort <= 0) {
+            PgliteServerProcess standby = PgliteStandbyPool.take(this);
+            if (standby != null) {
+                adopt(standby);
+                return;
+            }
+        }
+        startCold();
+    }
 
+    /** Extracts, spawns and waits for READY, bypassing the standby pool. */
+    void startCold() {
+        if (processRef.get() != null) {
+            return;
+        }
+
+        long extractionStarted = System.nanoTime();
         runtimeDir = extractRuntime();
+        extractionTime = Duration.ofNanos(System.nanoTime() - extractionStarted);
         Path script = runtimeDir.resolve("start.mjs");
         if (!Files.isRegularFile(script)) {
             throw new IllegalStateException("Missing PGlite helper script at " + script);
         }
 
-        int portToUse = configuredPort > 0 ? configuredPort : findAvailablePort();
+        int portToUse = 0;
+        if (transport == PgliteProperties.Transport.UNIX) {
+            this.socketPath = createSocketPath();
+        } else {
+            portToUse = configuredPort > 0 ? configuredPort : findAvailablePort();
+        }
         this.port = portToUse;
 
+        if (!nodeFlags.isEmpty() || initialMemory > 0 || !postgresSettings.isEmpty()) {
+            log.info("PGlite helper tuning: node flags {}, initial memory {}, Postgres settings {}",
+                    nodeFlags, initialMemory > 0 ? initialMemory + " bytes" : "default", postgresSettings);
+        }
+        launch(script, portToUse);
+    }
+
+    /** Spawns the helper on the given endpoint, trying every Node command candidate in turn. */
+    private void launch(Path script, int portToUse) {
         List<String[]> commandCandidates = buildNodeCommandCandidates(script);
         List<String> attemptErrors = new ArrayList<>();
 
@@ -118,42 +321,130 @@ final class PgliteServerProcess implements Closeable {
             }
         }
 
+        if (socketPath != null) {
+            try {
+                deleteRecursively(socketPath.getParent());
+            } catch (IOException ignored) {
+            }
+            socketPath = null;
+        }
         throw new IllegalStateException("Failed to start Node PGlite helper. Attempts: " + String.join(" | ", attemptErrors));
     }
 
-    private Path extractRuntime() {
-        try (InputStream in = PgliteServerProcess.class.getResourceAsStream(RUNTIME_ARCHIVE_RESOURCE)) {
-            if (in == null) {
-                throw new IllegalStateException("Runtime archive " + RUNTIME_ARCHIVE_RESOURCE + " not found on classpath");
-            }
-            Path dir = Files.createTempDirectory("pglite-node-runtime");
-            try (ZipInputStream zip = new ZipInputStream(in)) {
-                ZipEntry entry;
-                while ((entry = zip.getNextEntry()) != null) {
-                    Path target = dir.resolve(entry.getName()).normalize();
-                    if (!target.startsWith(dir)) {
-                        throw new IOException("Zip entry outside target dir: " + entry.getName());
-                    }
-                    if (entry.isDirectory()) {
-                        Files.createDirectories(target);
-                    } else {
-                        Files.createDirectories(target.getParent());
-                        Files.copy(zip, target, StandardCopyOption.REPLACE_EXISTING);
-                        if (isExecutable(entry.getName())) {
-                            target.toFile().setExecutable(true, false);
+    Path extractRuntime() {
+        try {
+            String key = runtimeKey();
+            Path dir = cacheBase().resolve("node-runtime-" + key.substring(0, 32));
+            extractOnce(dir, key, staging -> {
+                PgliteZipExtractor.extractResource(PgliteServerProcess.class, RUNTIME_ARCHIVE_RESOURCE, staging,
+                        this::isExecutable);
+                copyResource(START_SCRIPT_RESOURCE, staging.resolve("start.mjs"));
+                copyResource(PACKAGE_JSON_RESOURCE, staging.resolve("package.json"));
+                copyResource(PACKAGE_LOCK_RESOURCE, staging.resolve("package-lock.json"));
+            });
+            return dir;
+        } catch (IOException ex) {
+            throw new IllegalStateException("Failed to extract embedded PGlite runtime", ex);
+        }
+    }
+
+    /**
+     * Content address of the embedded runtime: SHA-256 over the runtime archive and the helper
+     * resources copied next to it. Computed once per JVM.
+     */
+    static String runtimeKey() throws IOException {
+        String key = runtimeKey;
+        if (key != null) {
+            return key;
+        }
+        synchronized (PgliteServerProcess.class) {
+            if (runtimeKey == null) {
+                MessageDigest digest = createSha256Digest();
+                for (String resource : List.of(RUNTIME_ARCHIVE_RESOURCE, START_SCRIPT_RESOURCE,
+                        PACKAGE_JSON_RESOURCE, PACKAGE_LOCK_RESOURCE)) {
+                    try (InputStream in = PgliteServerProcess.class.getResourceAsStream(resource)) {
+                        if (in == null) {
+                            throw new IllegalStateException("Resource " + resource + " not found on classpath");
+                        }
+                        digest.update(resource.getBytes(StandardCharsets.UTF_8));
+                        byte[] buffer = new byte[65536];
+                        int read;
+                        while ((read = in.read(buffer)) != -1) {
+                            digest.update(buffer, 0, read);
                         }
                     }
                 }
+                runtimeKey = toHex(digest.digest());
             }
-            copyResource(START_SCRIPT_RESOURCE, dir.resolve("start.mjs"));
-            copyResource(PACKAGE_JSON_RESOURCE, dir.resolve("package.json"));
-            copyResource(PACKAGE_LOCK_RESOURCE, dir.resolve("package-lock.json"));
-            return dir;
+            return runtimeKey;
+        }
+    }
+
+    /**
+     * Populates {@code target} exactly once across threads and JVMs. The content is built in a
+     * staging directory under the same {@link FileChannel#lock()} scheme used for downloads, marked
+     * read-only, stamped with {@code key} and atomically moved into place. Later callers only check
+     * the stamp.
+     */
+    private void extractOnce(Path target, String key, DirectoryPopulator populator) throws IOException {
+        if (isCompleteExtraction(target, key)) {
+            log.debug("Reusing cached PGlite runtime at {}", target);
+            return;
+        }
+        Files.createDirectories(target.getParent());
+        Path lockPath = target.resolveSibling(target.getFileName().toString() + ".lock");
+        try (FileChannel channel = FileChannel.open(lockPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+             FileLock ignored = channel.lock()) {
+
+            if (isCompleteExtraction(target, key)) {
+                return;
+            }
+            try (Stream<Path> siblings = Files.list(target.getParent())) {
+                for (Path stale : (Iterable<Path>) siblings::iterator) {
+                    if (stale.getFileName().toString().startsWith(target.getFileName() + ".staging")) {
+                        deleteRecursively(stale);
+                    }
+                }
+            }
+            if (Files.exists(target)) {
+                log.warn("Cached runtime {} is incomplete, extracting again", target);
+                deleteRecursively(target);
+            }
+
+            Path staging = Files.createTempDirectory(target.getParent(), target.getFileName() + ".staging");
+            try {
+                populator.populate(staging);
+                markReadOnly(staging);
+                Files.writeString(staging.resolve(EXTRACTION_MARKER), key, StandardCharsets.UTF_8);
+                Files.move(staging, target, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                if (Files.exists(staging)) {
+                    deleteRecursively(staging);
+                }
+            }
+        }
+    }
+
+    private boolean isCompleteExtraction(Path dir, String key) {
+        Path marker = dir.resolve(EXTRACTION_MARKER);
+        try {
+            return Files.isRegularFile(marker) && key.equals(Files.readString(marker, StandardCharsets.UTF_8).trim());
         } catch (IOException ex) {
-            throw new IllegalStateException("Failed to extract embedded PGlite runtime", ex);
+            return false;
         }
     }
 
+    private void markReadOnly(Path dir) throws IOException {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            paths.filter(Files::isRegularFile).forEach(p -> p.toFile().setWritable(false, false));
+        }
+    }
+
+    @FunctionalInterface
+    private interface DirectoryPopulator {
+        void populate(Path staging) throws IOException;
+    }
+
     private void copyResource(String resource, Path target) throws IOException {
         try (InputStream src = PgliteServerProcess.class.getResourceAsStream(resource)) {
             if (src == null) {
@@ -169,63 +460,166 @@ final class PgliteServerProcess implements Closeable {
         return lower.endsWith(".sh") || lower.endsWith(".cmd") || lower.endsWith(".bat");
     }
 
-    private void awaitReady(CountDownLatch latch, AtomicReference<Throwable> readErr, Process process) {
-        boolean ok;
+    private void awaitReady(PgliteControlChannel channel, Process process) {
         try {
-            ok = latch.await(startupTimeout.toMillis(), TimeUnit.MILLISECONDS);
+            Map<String, Object> ready = channel.ready().get(startupTimeout.toMillis(), TimeUnit.MILLISECONDS);
+            if (compileCache && ready.get("node") instanceof String version && !supportsCompileCache(version)
+                    && compileCacheWarned.compareAndSet(false, true)) {
+                log.warn("pglite.compile-cache has no effect: the helper runs Node {}, NODE_COMPILE_CACHE needs Node 22.1 or later",
+                        version);
+            }
         } catch (InterruptedException ex) {
             Thread.currentThread().interrupt();
             safeDestroy(process);
             throw new IllegalStateException("Interrupted while waiting for PGlite READY", ex);
-        }
-
-        if (!ok) {
+        } catch (TimeoutException ex) {
             safeDestroy(process);
             throw new IllegalStateException("Timed out waiting for PGlite. Output: " + joinOutput());
-        }
-
-        if (readErr.get() != null) {
+        } catch (ExecutionException ex) {
+            if (!process.isAlive()) {
+                String hint = process.exitValue() == 9009 ? " (Windows: node command not found)" : "";
+                throw new IllegalStateException("PGlite helper exited with code " + process.exitValue() + hint + ". Output: " + joinOutput());
+            }
             safeDestroy(process);
-            throw new IllegalStateException("Failed to read PGlite output. Output: " + joinOutput(), readErr.get());
+            throw new IllegalStateException(ex.getCause().getMessage() + ". Output: " + joinOutput(), ex.getCause());
         }
+    }
 
-        if (!process.isAlive()) {
-            String hint = process.exitValue() == 9009 ? " (Windows: node command not found)" : "";
-            throw new IllegalStateException("PGlite helper exited with code " + process.exitValue() + hint + ". Output: " + joinOutput());
+    /** Whether Node {@code version} (e.g. {@code 22.1.0}) honours {@code NODE_COMPILE_CACHE}. */
+    static boolean supportsCompileCache(String version) {
+        String[] parts = version.startsWith("v") ? version.substring(1).split("\\.") : version.split("\\.");
+        try {
+            int major = Integer.parseInt(parts[0]);
+            int minor = parts.length > 1 ? Integer.parseInt(parts[1]) : 0;
+            return major > 22 || (major == 22 && minor >= 1);
+        } catch (NumberFormatException ex) {
+            return true;
         }
     }
 
-    private void readLoop(InputStream inputStream, CountDownLatch ready, AtomicReference<Throwable> readErr) {
+    /** Drains the helper's stdout/stderr into the bounded output buffer used in error messages. */
+    private void readLoop(InputStream inputStream) {
         try (BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8))) {
             String line;
             while ((line = reader.readLine()) != null) {
                 appendOutput(line);
-                // Parse simple JSON line with {"event": "READY"|"ERROR", ...}
-                String trimmed = line.trim();
-                if (!(trimmed.startsWith("{") && trimmed.endsWith("}"))) {
-                    continue;
-                }
-                String lower = trimmed.toLowerCase(Locale.ROOT);
-                if (lower.contains("\"event\"")) {
-                    if (lower.contains("\"ready\"")) {
-                        ready.countDown();
-                    } else if (lower.contains("\"error\"")) {
-                        ready.countDown();
-                    }
-                }
             }
         } catch (IOException ex) {
-            readErr.compareAndSet(null, ex);
-            ready.countDown();
+            appendOutput("<output closed: " + ex.getMessage() + ">");
+        }
+    }
+
+    /**
+     * Sends a control command to the helper over its control channel and waits for the matching
+     * response. Commands never touch the PGWire port.
+     */
+    Map<String, Object> command(String name, Map<String, Object> arguments) {
+        PgliteControlChannel channel = control;
+        if (channel == null || processRef.get() == null) {
+            throw new IllegalStateException("PGlite helper is not running");
         }
+        return channel.request(name, arguments, startupTimeout);
+    }
+
+    /** Round-trips an empty command through the helper's event loop and returns how long it took. */
+    Duration ping() {
+        long started = System.nanoTime();
+        command("ping", Map.of());
+        return Duration.ofNanos(System.nanoTime() - started);
+    }
+
+    /** Per-database session, queue, snapshot and statement cache counters plus helper uptime. */
+    Map<String, Object> stats() {
+        return command("stats", Map.of());
+    }
+
+    /** Node's {@code process.memoryUsage()} of the helper (rss, heapTotal, heapUsed, external, arrayBuffers). */
+    Map<String, Object> memoryUsage() {
+        return command("memory", Map.of());
+    }
+
+    /** Runs {@code VACUUM} (or {@code VACUUM FULL}) on {@code database} between client statements. */
+    void vacuum(String database, boolean full) {
+        command("vacuum", Map.of("database", database, "full", full));
+    }
+
+    /** Replaces {@code database} with an empty, freshly initialised instance. */
+    void reset(String database) {
+        command("reset", Map.of("database", database));
+    }
+
+    /**
+     * Helper memory, per-database session and queue counts, and the protocol batch latencies
+     * (microseconds, by first message type) sampled since the previous call. Sampling starts
+     * with the first call.
+     */
+    Map<String, Object> helperMetrics() {
+        return command("metrics", Map.of());
+    }
+
+    /** How long the running helper took to start; {@code null} before {@link #start()}. */
+    StartupTimings startupTimings() {
+        return startupTimings;
+    }
+
+    /** Round-trip latency of every control command sent to the current helper, by command name. */
+    Map<String, PgliteControlChannel.CommandLatency> commandLatencies() {
+        PgliteControlChannel channel = control;
+        return channel == null ? Map.of() : channel.latencies();
+    }
+
+    /** Captures the current state of {@code database} in helper memory under {@code name}. */
+    void snapshot(String database, String name) {
+        command("snapshot", Map.of("database", database, "name", name));
+        if (restartRestoresSnapshots) {
+            synchronized (savedSnapshots) {
+                Map<String, Path> byName = savedSnapshots.computeIfAbsent(database, key -> new LinkedHashMap<>());
+                Path tarball = byName.remove(name);
+                if (tarball == null) {
+                    tarball = snapshotDir().resolve("snapshot-" + savedSnapshotFiles++ + ".tar");
+                }
+                dumpDatabase(database, tarball);
+                byName.put(name, tarball);
+            }
+        }
+    }
+
+    /**
+     * Replaces {@code database} with the snapshot stored under {@code name}. Open client
+     * connections stay connected; their prepared statements are re-created on the restored
+     * instance.
+     */
+    void restore(String database, String name) {
+        command("restore", Map.of("database", database, "name", name));
+    }
+
+    /** Writes the data directory of {@code database} to {@code tarball}, replacing it atomically. */
+    void dumpDatabase(String database, Path tarball) {
+        command("dump", Map.of("database", database, "path", tarball.toAbsolutePath().toString()));
+    }
+
+    /** Replaces {@code database} with a data directory tarball written by {@link #dumpDatabase}. */
+    void loadDatabase(String database, Path tarball) {
+        command("load", Map.of("database", database, "path", tarball.toAbsolutePath().toString()));
+    }
+
+    /** Creates or replaces {@code target} with a copy of {@code database}; needs a multi-database helper. */
+    void cloneDatabase(String database, String target) {
+        command("clone", Map.of("database", database, "target", target));
+    }
+
+    /** Releases the PGlite instance behind a shared-server database that is no longer leased. */
+    void dropDatabase(String database) {
+        command("drop", Map.of("database", database));
     }
 
     private void appendOutput(String line) {
-        synchronized (outputBuffer) {
-            outputBuffer.add(line);
-            if (outputBuffer.size() > MAX_CAPTURED_LINES) {
-                outputBuffer.remove(0);
+        Deque<String> buffer = outputBuffer;
+        synchronized (buffer) {
+            if (buffer.size() == MAX_CAPTURED_LINES) {
+                buffer.pollFirst();
             }
+            buffer.addLast(line);
         }
     }
 
@@ -235,15 +629,31 @@ final class PgliteServerProcess implements Closeable {
         pb.directory(runtimeDir.toFile());
 
         Map<String, String> env = pb.environment();
-        env.put("PGLITE_PORT", Integer.toString(portToUse));
-        env.put("PGLITE_HOST", host);
-        env.put("PGLITE_USERS_JSON", buildUsersJson());
-        env.put("PGLITE_LOG_LEVEL", logLevel.name());
+        if (socketPath != null) {
+            // a previous candidate may have bound the socket before failing
+            Files.deleteIfExists(socketPath);
+            env.put("PGLITE_SOCKET_PATH", socketPath.toString());
+        } else {
+            env.put("PGLITE_PORT", Integer.toString(portToUse));
+        }
+        env.putAll(helperEnvironment());
         if (pathPrepend != null && !pathPrepend.isBlank()) {
             env.put("PATH", pathPrepend + File.pathSeparator + env.getOrDefault("PATH", ""));
         }
 
-        Process process = pb.start();
+        PgliteControlChannel channel = PgliteControlChannel.open();
+        env.put("PGLITE_CONTROL_PORT", Integer.toString(channel.port()));
+        env.put("PGLITE_CONTROL_TOKEN", channel.token());
+        Process process;
+        long spawnStarted = System.nanoTime();
+        try {
+            process = pb.start();
+        } catch (IOException ex) {
+            channel.close();
+            throw ex;
+        }
+        process.onExit().thenAccept(exited -> channel.fail(new IllegalStateException(
+                "PGlite helper exited with code " + exited.exitValue() + ". Output: " + joinOutput())));
         ExecutorService pool = Executors.newSingleThreadExecutor(r -> {
             Thread t = new Thread(r, "pglite-io");
             t.setDaemon(true);
@@ -252,28 +662,98 @@ final class PgliteServerProcess implements Closeable {
 
         boolean success = false;
         try {
-            CountDownLatch ready = new CountDownLatch(1);
-            AtomicReference<Throwable> readErr = new AtomicReference<>();
-            pool.submit(() -> readLoop(process.getInputStream(), ready, readErr));
-            awaitReady(ready, readErr, process);
+            pool.submit(() -> readLoop(process.getInputStream()));
+            long readyStarted = System.nanoTime();
+            Duration spawn = Duration.ofNanos(readyStarted - spawnStarted);
+            awaitReady(channel, process);
+            this.startupTimings = new StartupTimings(extractionTime, spawn,
+                    Duration.ofNanos(System.nanoTime() - readyStarted));
 
             this.ioPool = pool;
+            this.control = channel;
             this.processRef.set(process);
-            Runtime.getRuntime().addShutdownHook(new Thread(this::safeStop));
-            log.info("PGlite started on {}:{} via {}", host, portToUse, joinedCommand);
+            supervise(process);
+            PgliteShutdown.register(this);
+            log.info("PGlite started on {} via {}", endpoint(), joinedCommand);
             success = true;
         } finally {
             if (!success) {
                 safeDestroy(process);
                 pool.shutdownNow();
+                channel.close();
             }
         }
     }
 
+    /** Environment that shapes the helper, apart from the port. */
+    private Map<String, String> helperEnvironment() {
+        Map<String, String> env = new LinkedHashMap<>();
+        env.put("PGLITE_HOST", host);
+        env.put("PGLITE_USERS_JSON", buildUsersJson());
+        env.put("PGLITE_LOG_LEVEL", logLevel.name());
+        env.put("PGLITE_DATABASE", database);
+        env.put("PGLITE_MULTI_DATABASE", Boolean.toString(multiDatabase));
+        env.put("PGLITE_WORKER_THREADS", Boolean.toString(workerThreads));
+        if (initialMemory > 0) {
+            env.put("PGLITE_INITIAL_MEMORY", Long.toString(initialMemory));
+        }
+        if (!postgresSettings.isEmpty()) {
+            env.put("PGLITE_SETTINGS_JSON", PgliteJson.write(postgresSettings));
+        }
+        if (statementCacheSize > 0) {
+            env.put("PGLITE_STATEMENT_CACHE_SIZE", Integer.toString(statementCacheSize));
+        }
+        if (fetchRows > 0) {
+            env.put("PGLITE_FETCH_ROWS", Integer.toString(fetchRows));
+        }
+        if (compileCache) {
+            // Node keys entries by its own version and the source hash, so one directory serves all runtimes
+            env.put("NODE_COMPILE_CACHE", cacheBase().resolve("compile-cache").toAbsolutePath().toString());
+        }
+        if (bootMode == PgliteProperties.BootMode.IMAGE) {
+            // the helper names the image after the PGlite version it actually loads
+            env.put("PGLITE_BOOT_IMAGE_DIR", cacheBase().resolve("boot-images").toAbsolutePath().toString());
+        }
+        return env;
+    }
+
+    /**
+     * Identifies helpers that are interchangeable: same runtime, same Node command and the same
+     * helper environment. Only auto-assigned ports qualify, since a standby already listens.
+     */
+    PgliteStandbyPool.LaunchKey launchKey() {
+        return new PgliteStandbyPool.LaunchKey(helperEnvironment(), nodeFlags, transport, nodeCommand, pathPrepend,
+                runtimeDownloadUrlTemplate, runtimeDownloadSha256Template, runtimeCacheDir);
+    }
+
+    /**
+     * Takes over the running helper of a started standby. The standby's reader thread keeps
+     * writing into the output buffer, so that is shared rather than copied.
+     */
+    private void adopt(PgliteServerProcess standby) {
+        this.outputBuffer = standby.outputBuffer;
+        this.startupTimings = standby.startupTimings;
+        this.control = standby.control;
+        standby.control = null;
+        this.runtimeDir = standby.runtimeDir;
+        this.port = standby.port;
+        this.socketPath = standby.socketPath;
+        standby.socketPath = null;
+        this.ioPool = standby.ioPool;
+        standby.ioPool = null;
+        Process process = standby.processRef.getAndSet(null);
+        this.processRef.set(process);
+        supervise(process);
+        PgliteShutdown.deregister(standby);
+        PgliteShutdown.register(this);
+        log.info("PGlite started on {} from standby pool", endpoint());
+    }
+
     private String joinOutput() {
         StringBuilder sb = new StringBuilder();
-        synchronized (outputBuffer) {
-            for (String entry : outputBuffer) {
+        Deque<String> buffer = outputBuffer;
+        synchronized (buffer) {
+            for (String entry : buffer) {
                 if (sb.length() > 0) {
                     sb.append(" | ");
                 }
@@ -289,45 +769,173 @@ final class PgliteServerProcess implements Closeable {
         }
     }
 
-    private void safeStop() {
-        try {
-            close();
-        } catch (IOException ignored) {
-        }
-    }
-
+    /**
+     * Stops the helper: it is asked to close its databases first and only signalled when it does
+     * not acknowledge in time. The socket directory is left to the reaper, and the runtime
+     * directory stays in the cache for the next helper.
+     */
     @Override
     public void close() throws IOException {
+        closed = true;
+        PgliteShutdown.deregister(this);
         Process process = processRef.getAndSet(null);
+        PgliteControlChannel channel = control;
+        control = null;
+        boolean acknowledged = false;
+        if (process != null && channel != null && process.isAlive()) {
+            try {
+                channel.request("shutdown", Map.of(), SHUTDOWN_TIMEOUT);
+                acknowledged = true;
+            } catch (IllegalStateException ex) {
+                log.debug("PGlite helper on {} did not acknowledge shutdown: {}", endpoint(), ex.getMessage());
+            }
+        }
+        if (channel != null) {
+            // the helper exits once its control channel goes away
+            channel.close();
+        }
         if (process != null) {
-            process.destroy();
+            if (!acknowledged) {
+                process.destroy();
+            }
             try {
-                process.waitFor(5, TimeUnit.SECONDS);
+                if (!process.waitFor(SHUTDOWN_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS)) {
+                    process.destroyForcibly();
+                }
             } catch (InterruptedException ex) {
                 Thread.currentThread().interrupt();
-            }
-            if (process.isAlive()) {
                 process.destroyForcibly();
             }
         }
         if (ioPool != null) {
+            // the reader thread ends by itself once the helper's output is closed
             ioPool.shutdownNow();
+        }
+        Path socket = socketPath;
+        if (socket != null) {
+            socketPath = null;
+            PgliteShutdown.reap(socket.getParent());
+        }
+        synchronized (savedSnapshots) {
+            if (snapshotDir != null) {
+                PgliteShutdown.reap(snapshotDir);
+                snapshotDir = null;
+                savedSnapshots.clear();
+            }
+        }
+    }
+
+    /** Runs {@code listener} after every automatic restart, once the new helper is ready. */
+    void addRestartListener(Runnable listener) {
+        restartListeners.add(listener);
+    }
+
+    void removeRestartListener(Runnable listener) {
+        restartListeners.remove(listener);
+    }
+
+    /** The running helper process, or {@code null} when there is none. */
+    ProcessHandle processHandle() {
+        Process process = processRef.get();
+        return process == null ? null : process.toHandle();
+    }
+
+    /** Automatic restarts after the helper process died. */
+    int restartCount() {
+        return restarts.get();
+    }
+
+    /** Total time between a helper dying and its replacement being ready. */
+    Duration downtime() {
+        return Duration.ofNanos(downtimeNanos.get());
+    }
+
+    /** Restarts the helper when {@code process} exits while it is still the current one. */
+    private void supervise(Process process) {
+        process.onExit().thenRun(() -> {
+            if (processRef.get() != process) {
+                return; // closed, or handed over to another instance
+            }
+            Thread thread = new Thread(() -> restartAfterCrash(process), "pglite-supervisor");
+            thread.setDaemon(true);
+            thread.start();
+        });
+    }
+
+    /**
+     * Starts a new helper on the endpoint of the one that died, so JDBC URLs stay valid, then puts
+     * back the saved snapshots and tells the registered listeners to drop their connections.
+     */
+    private synchronized void restartAfterCrash(Process crashed) {
+        long down = System.nanoTime();
+        if (!processRef.compareAndSet(crashed, null)) {
+            return;
+        }
+        log.error("PGlite helper on {} exited unexpectedly with code {}. Output: {}",
+                endpoint(), crashed.exitValue(), joinOutput());
+        PgliteControlChannel channel = control;
+        control = null;
+        if (channel != null) {
             try {
-                ioPool.awaitTermination(2, TimeUnit.SECONDS);
-            } catch (InterruptedException ex) {
-                Thread.currentThread().interrupt();
+                channel.close();
+            } catch (IOException ignored) {
             }
         }
-        if (runtimeDir != null) {
+        if (ioPool != null) {
+            ioPool.shutdownNow();
+            ioPool = null;
+        }
+        if (restarts.get() >= maxRestarts) {
+            log.error("Not restarting the PGlite helper: pglite.max-restarts={} reached", maxRestarts);
+            return;
+        }
+        int attempt = restarts.incrementAndGet();
+        try {
+            launch(runtimeDir.resolve("start.mjs"), port);
+            if (closed) {
+                close();
+                return;
+            }
+            restoreSavedSnapshots();
+        } catch (IOException | RuntimeException ex) {
+            log.error("Failed to restart the PGlite helper on {}: {}", endpoint(), ex.getMessage());
+            return;
+        }
+        Duration downtime = Duration.ofNanos(System.nanoTime() - down);
+        downtimeNanos.addAndGet(downtime.toNanos());
+        log.warn("PGlite helper restarted on {} after {} ms (restart {} of at most {})",
+                endpoint(), downtime.toMillis(), attempt, maxRestarts);
+        for (Runnable listener : restartListeners) {
             try {
-                deleteRecursively(runtimeDir);
+                listener.run();
+            } catch (RuntimeException ex) {
+                log.warn("PGlite restart listener failed: {}", ex.getMessage());
+            }
+        }
+    }
+
+    /** Re-creates every saved snapshot, leaving each database at the one taken last. */
+    private void restoreSavedSnapshots() {
+        synchronized (savedSnapshots) {
+            savedSnapshots.forEach((database, byName) -> byName.forEach((name, tarball) -> {
+                loadDatabase(database, tarball);
+                command("snapshot", Map.of("database", database, "name", name));
+            }));
+        }
+    }
+
+    private Path snapshotDir() {
+        if (snapshotDir == null) {
+            try {
+                snapshotDir = Files.createTempDirectory("pglite-snapshots-");
             } catch (IOException ex) {
-                log.debug("Failed to clean runtime dir {}: {}", runtimeDir, ex.getMessage());
+                throw new IllegalStateException("Unable to create directory for PGlite snapshot copies", ex);
             }
         }
+        return snapshotDir;
     }
 
-    private void deleteRecursively(Path path) throws IOException {
+    static void deleteRecursively(Path path) throws IOException {
         if (!Files.exists(path)) {
             return;
         }
@@ -335,6 +943,7 @@ final class PgliteServerProcess implements Closeable {
             stream.sorted(Comparator.reverseOrder())
                     .forEach(p -> {
                         try {
+                            p.toFile().setWritable(true);
                             Files.deleteIfExists(p);
                         } catch (IOException ex) {
                             log.debug("Failed to delete {}: {}", p, ex.getMessage());
@@ -351,11 +960,38 @@ final class PgliteServerProcess implements Closeable {
         return port;
     }
 
+    String database() {
+        return database;
+    }
+
+    int standbyPoolSize() {
+        return standbyPoolSize;
+    }
+
+    PgliteProperties properties() {
+        return properties;
+    }
+
     String jdbcUrl(String database, String params) {
-        String qp = (params == null || params.isBlank()) ? "" : ("?" + params);
+        boolean noParams = params == null || params.isBlank();
+        Path socket = socketPath;
+        if (socket != null) {
+            // pgjdbc still wants a host; the socket factory ignores it
+            return "jdbc:postgresql://localhost/" + database
+                    + "?socketFactory=" + PgliteUnixSocketFactory.class.getName()
+                    + "&socketFactoryArg=" + URLEncoder.encode(socket.toString(), StandardCharsets.UTF_8)
+                    + (noParams ? "" : "&" + params);
+        }
+        String qp = noParams ? "" : ("?" + params);
         return "jdbc:postgresql://" + host + ":" + port + "/" + database + qp;
     }
 
+    /** Where clients connect, for log messages. */
+    String endpoint() {
+        Path socket = socketPath;
+        return socket != null ? socket.toString() : host + ":" + port;
+    }
+
     private List<String[]> buildNodeCommandCandidates(Path script) {
         List<List<String>> ordered = new ArrayList<>();
 
@@ -383,8 +1019,9 @@ final class PgliteServerProcess implements Closeable {
 
         List<String[]> result = new ArrayList<>(unique.size());
         for (List<String> base : unique) {
-            List<String> full = new ArrayList<>(base.size() + 1);
+            List<String> full = new ArrayList<>(base.size() + nodeFlags.size() + 1);
             full.addAll(base);
+            full.addAll(nodeFlags);
             full.add(script.toString());
             result.add(full.toArray(new String[0]));
         }
@@ -466,9 +1103,7 @@ final class PgliteServerProcess implements Closeable {
         }
 
         try {
-            Path cacheBase = runtimeCacheDir != null && !runtimeCacheDir.isBlank()
-                    ? Path.of(runtimeCacheDir)
-                    : Path.of(System.getProperty("java.io.tmpdir"), "pglite-runtime-cache");
+            Path cacheBase = cacheBase();
             Files.createDirectories(cacheBase);
 
             String url = runtimeDownloadUrlTemplate
@@ -480,14 +1115,11 @@ final class PgliteServerProcess implements Closeable {
             downloadAndVerifyArchive(url, archivePath, expectedSha256);
 
             Path extractedDir = cacheBase.resolve("runtime-" + osToken + "-" + archToken);
-            unzip(archivePath, extractedDir);
+            String archiveKey = expectedSha256 != null ? normalizeChecksum(expectedSha256) : computeSha256(archivePath);
+            extractOnce(extractedDir, archiveKey,
+                    staging -> PgliteZipExtractor.extract(archivePath, staging, this::isExecutable));
 
-            if (Files.exists(targetDir)) {
-                deleteRecursively(targetDir);
-            }
-            copyDirectory(extractedDir, targetDir);
-
-            Path nodeBinary = resolveNodeExecutable(targetDir);
+            Path nodeBinary = resolveNodeExecutable(extractedDir);
             if (nodeBinary == null) {
                 throw new IllegalStateException("Downloaded runtime from " + url + " does not contain a Node executable");
             }
@@ -562,6 +1194,12 @@ final class PgliteServerProcess implements Closeable {
         return normalizedExpected.equals(actual);
     }
 
+    Path cacheBase() {
+        return runtimeCacheDir != null && !runtimeCacheDir.isBlank()
+                ? Path.of(runtimeCacheDir)
+                : Path.of(System.getProperty("java.io.tmpdir"), "pglite-runtime-cache");
+    }
+
     private String computeSha256(Path file) throws IOException {
         MessageDigest digest = createSha256Digest();
         try (DigestInputStream in = new DigestInputStream(Files.newInputStream(file), digest)) {
@@ -570,7 +1208,10 @@ final class PgliteServerProcess implements Closeable {
                 // drain
             }
         }
-        byte[] hash = digest.digest();
+        return toHex(digest.digest());
+    }
+
+    private static String toHex(byte[] hash) {
         StringBuilder sb = new StringBuilder(hash.length * 2);
         for (byte b : hash) {
             sb.append(String.format(Locale.ROOT, "%02x", b));
@@ -578,7 +1219,7 @@ final class PgliteServerProcess implements Closeable {
         return sb.toString();
     }
 
-    private MessageDigest createSha256Digest() {
+    private static MessageDigest createSha256Digest() {
         try {
             return MessageDigest.getInstance("SHA-256");
         } catch (NoSuchAlgorithmException ex) {
@@ -611,43 +1252,6 @@ final class PgliteServerProcess implements Closeable {
         return sb.toString();
     }
 
-    private void unzip(Path zipFile, Path destination) throws IOException {
-        if (Files.exists(destination)) {
-            deleteRecursively(destination);
-        }
-        Files.createDirectories(destination);
-        try (ZipInputStream zip = new ZipInputStream(Files.newInputStream(zipFile))) {
-            ZipEntry entry;
-            while ((entry = zip.getNextEntry()) != null) {
-                Path target = destination.resolve(entry.getName()).normalize();
-                if (!target.startsWith(destination)) {
-                    throw new IOException("Zip entry outside target dir: " + entry.getName());
-                }
-                if (entry.isDirectory()) {
-                    Files.createDirectories(target);
-                } else {
-                    Files.createDirectories(target.getParent());
-                    Files.copy(zip, target, StandardCopyOption.REPLACE_EXISTING);
-                }
-            }
-        }
-    }
-
-    private void copyDirectory(Path source, Path destination) throws IOException {
-        try (Stream<Path> paths = Files.walk(source)) {
-            for (Path path : (Iterable<Path>) paths::iterator) {
-                Path relative = source.relativize(path);
-                Path target = destination.resolve(relative);
-                if (Files.isDirectory(path)) {
-                    Files.createDirectories(target);
-                } else {
-                    Files.createDirectories(target.getParent());
-                    Files.copy(path, target, StandardCopyOption.REPLACE_EXISTING);
-                }
-            }
-        }
-    }
-
     private Path resolveNodeExecutable(Path baseDir) {
         if (baseDir == null || !Files.exists(baseDir)) {
             return null;
@@ -700,6 +1304,26 @@ final class PgliteServerProcess implements Closeable {
         return "x64";
     }
 
+    private PgliteProperties.Transport effectiveTransport(PgliteProperties.Transport requested) {
+        if (requested == PgliteProperties.Transport.UNIX && isWindows()) {
+            log.warn("pglite.transport=UNIX is not supported on Windows, using TCP");
+            return PgliteProperties.Transport.TCP;
+        }
+        return requested == null ? PgliteProperties.Transport.TCP : requested;
+    }
+
+    /**
+     * A private directory keeps the socket away from other users and short enough for the
+     * platform's sun_path limit; the shared runtime directory is read-only and may be deep.
+     */
+    private Path createSocketPath() {
+        try {
+            return Files.createTempDirectory("pglite-").resolve(".s.PGSQL.5432");
+        } catch (IOException ex) {
+            throw new IllegalStateException("Unable to create directory for the PGlite socket", ex);
+        }
+    }
+
     private int findAvailablePort() {
         try (ServerSocket socket = new ServerSocket(0, 0, InetAddress.getByName(host))) {
             return socket.getLocalPort();
@@ -724,48 +1348,11 @@ final class PgliteServerProcess implements Closeable {
                 json.append(',');
             }
             first = false;
-            json.append('"').append(escapeJson(entry.getKey())).append('"')
+            json.append('"').append(PgliteJson.escape(entry.getKey())).append('"')
                     .append(':')
-                    .append('"').append(escapeJson(entry.getValue())).append('"');
+                    .append('"').append(PgliteJson.escape(entry.getValue())).append('"');
         }
         json.append('}');
         return json.toString();
     }
-
-    private String escapeJson(String value) {
-        StringBuilder sb = new StringBuilder();
-        for (int i = 0; i < value.length(); i++) {
-            char c = value.charAt(i);
-            switch (c) {
-                case '"':
-                    sb.append("\\\"");
-                    break;
-                case '\\':
-                    sb.append("\\\\");
-                    break;
-                case '\b':
-                    sb.append("\\b");
-                    break;
-                case '\f':
-                    sb.append("\\f");
-                    break;
-                case '\n':
-                    sb.append("\\n");
-                    break;
-                case '\r':
-                    sb.append("\\r");
-                    break;
-                case '\t':
-                    sb.append("\\t");
-                    break;
-                default:
-                    if (c < 0x20) {
-                        sb.append(String.format("\\u%04x", (int) c));
-                    } else {
-                        sb.append(c);
-                    }
-            }
-        }
-        return sb.toString();
-    }
 }
@@ -0,0 +1,235 @@
+package com.euronext.pglite.spring.test;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
+
+/**
+ * JVM-wide, reference-counted registry of helper processes.
+ * <p>
+ * With {@code pglite.share-server=true} every application context whose effective settings match
+ * leases the same running helper; each lease is handed its own logical database, which the helper
+ * backs with a separate PGlite instance. The helper is stopped when the last lease is released.
+ * Without sharing, every lease owns a private helper.
+ */
+final class PgliteServerRegistry {
+    private static final Logger log = LoggerFactory.getLogger(PgliteServerRegistry.class);
+
+    private static final Map<Key, Entry> shared = new HashMap<>();
+    private static final Map<PgliteServerProcess, Map<Class<?>, Object>> perServer = new ConcurrentHashMap<>();
+
+    private PgliteServerRegistry() {
+    }
+
+    static Lease acquire(PgliteProperties props) {
+        if (!props.isShareServer()) {
+            PgliteServerProcess server = new PgliteServerProcess(props);
+            server.start();
+            return new Lease(null, server, server.database());
+        }
+
+        Key key = Key.of(props);
+        Entry entry;
+        boolean starting;
+        String database;
+        int references;
+        synchronized (shared) {
+            entry = shared.computeIfAbsent(key, k -> new Entry(new PgliteServerProcess(props)));
+            starting = entry.references++ == 0;
+            references = entry.references;
+            database = entry.leased++ == 0
+                    ? entry.server.database()
+                    : entry.server.database() + "_" + entry.leased;
+        }
+        // the helper starts outside the lock, so cold starts of other keys and releases go on meanwhile
+        if (starting) {
+            try {
+                entry.server.start();
+                entry.started.complete(null);
+            } catch (RuntimeException | Error ex) {
+                synchronized (shared) {
+                    shared.remove(key, entry);
+                }
+                entry.started.completeExceptionally(ex);
+                throw ex;
+            }
+        } else {
+            try {
+                entry.started.join();
+            } catch (CompletionException ex) {
+                throw new IllegalStateException("Shared PGlite helper failed to start", ex.getCause());
+            }
+        }
+        log.info("Leased shared PGlite helper on {} as database '{}' ({} active)",
+                entry.server.endpoint(), database, references);
+        return new Lease(key, entry.server, database);
+    }
+
+    private static void release(Lease lease) throws IOException {
+        if (lease.key == null) {
+            perServer.remove(lease.server);
+            lease.server.close();
+            return;
+        }
+        PgliteServerProcess toClose = null;
+        synchronized (shared) {
+            Entry entry = shared.get(lease.key);
+            if (entry == null || entry.server != lease.server) {
+                return;
+            }
+            if (--entry.references == 0) {
+                shared.remove(lease.key);
+                perServer.remove(entry.server);
+                toClose = entry.server;
+            }
+        }
+        if (toClose != null) {
+            log.info("Last context released shared PGlite helper on {}", toClose.endpoint());
+            toClose.close();
+        } else {
+            List<String> databases = new ArrayList<>(lease.clones);
+            if (!lease.database.equals(lease.server.database())) {
+                databases.add(lease.database);
+            }
+            for (String database : databases) {
+                try {
+                    lease.server.dropDatabase(database);
+                } catch (IllegalStateException ex) {
+                    log.debug("Failed to drop PGlite database '{}': {}", database, ex.getMessage());
+                }
+            }
+        }
+    }
+
+    private static final class Entry {
+        private final PgliteServerProcess server;
+        /** Completes once the first lease of this key has started the helper. */
+        private final CompletableFuture<Void> started = new CompletableFuture<>();
+        private int references;
+        private int leased;
+
+        private Entry(PgliteServerProcess server) {
+            this.server = server;
+        }
+    }
+
+    /**
+     * Settings that change the helper process itself. Client-side settings (database, JDBC params,
+     * startup timeout) do not take part in the match.
+     */
+    private record Key(String host, int port, PgliteProperties.Transport transport, String username, String password,
+                       PgliteProperties.LogLevel logLevel, String nodeCommand, String pathPrepend,
+                       String runtimeDownloadUrlTemplate, String runtimeDownloadSha256Template,
+                       String runtimeCacheDir, boolean compileCache, PgliteProperties.BootMode bootMode,
+                       boolean workerThreads, List<String> nodeFlags, long initialMemory,
+                       Map<String, String> postgresSettings, int statementCacheSize, int fetchRows,
+                       int maxRestarts, boolean restartRestoresSnapshot) {
+
+        static Key of(PgliteProperties props) {
+            return new Key(props.getHost(), props.getPort(), props.getTransport(), props.getUsername(), props.getPassword(),
+                    props.getLogLevel(), props.getNodeCommand(), props.getPathPrepend(),
+                    props.getRuntimeDownloadUrlTemplate(), props.getRuntimeDownloadSha256Template(),
+                    props.getRuntimeCacheDir(), props.isCompileCache(), props.getBootMode(), props.getWorkers() > 1,
+                    PgliteServerProcess.nodeFlags(props), PgliteServerProcess.initialMemory(props),
+                    PgliteServerProcess.postgresSettings(props), props.getStatementCacheSize(), props.getFetchRows(),
+                    props.getMaxRestarts(), props.isRestartRestoresSnapshot());
+        }
+    }
+
+    /**
+     * A context's claim on a running helper. Closing the lease releases the claim.
+     */
+    static final class Lease implements Closeable {
+        private final Key key;
+        private final PgliteServerProcess server;
+        private final String database;
+        private final Set<String> snapshots = ConcurrentHashMap.newKeySet();
+        private final Set<String> clones = ConcurrentHashMap.newKeySet();
+        private final List<Runnable> restartListeners = new CopyOnWriteArrayList<>();
+        private boolean released;
+
+        private Lease(Key key, PgliteServerProcess server, String database) {
+            this.key = key;
+            this.server = Objects.requireNonNull(server);
+            this.database = database;
+        }
+
+        PgliteServerProcess server() {
+            return server;
+        }
+
+        String database() {
+            return database;
+        }
+
+        String jdbcUrl(String params) {
+            return server.jdbcUrl(database, params);
+        }
+
+        void snapshot(String name) {
+            server.snapshot(database, name);
+            snapshots.add(name);
+        }
+
+        void restore(String name) {
+            server.restore(database, name);
+        }
+
+        void dump(Path tarball) {
+            server.dumpDatabase(database, tarball);
+        }
+
+        void load(Path tarball) {
+            server.loadDatabase(database, tarball);
+        }
+
+        /** Seeds {@code target} from this lease's database; the copy is dropped with the lease. */
+        void cloneInto(String target) {
+            server.cloneDatabase(database, target);
+            clones.add(target);
+        }
+
+        /**
+         * The one {@code type} object of this lease's helper, created by {@code factory} for the
+         * first lease that asks and shared with every other lease of the helper until it stops.
+         */
+        <T> T perServer(Class<T> type, Function<PgliteServerProcess, T> factory) {
+            return type.cast(perServer.computeIfAbsent(server, s -> new ConcurrentHashMap<>())
+                    .computeIfAbsent(type, t -> factory.apply(server)));
+        }
+
+        boolean hasSnapshot(String name) {
+            return snapshots.contains(name);
+        }
+
+        /** Runs {@code listener} whenever the helper was restarted after a crash, until the lease is closed. */
+        void onRestart(Runnable listener) {
+            restartListeners.add(listener);
+            server.addRestartListener(listener);
+        }
+
+        @Override
+        public synchronized void close() throws IOException {
+            if (released) {
+                return;
+            }
+            released = true;
+            restartListeners.forEach(server::removeRestartListener);
+            release(this);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.euronext.pglite.spring.test;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Stops the helpers that are still running when the JVM exits, from a single shutdown hook.
+ * <p>
+ * Helpers register once they are up and deregister when closed. On exit the remaining ones,
+ * including standby helpers, are closed in parallel, so a suite with many cached contexts waits
+ * for the slowest helper instead of for all of them in turn. Directories a helper leaves behind,
+ * such as the private directory of its Unix socket, are deleted by a background reaper rather
+ * than by the thread that closes it; the hook gives the reaper what is left of its time budget.
+ */
+final class PgliteShutdown {
+    private static final Logger log = LoggerFactory.getLogger(PgliteShutdown.class);
+    private static final Duration HOOK_TIMEOUT = Duration.ofSeconds(10);
+
+    private static final Set<PgliteServerProcess> running = ConcurrentHashMap.newKeySet();
+    private static final AtomicBoolean hookInstalled = new AtomicBoolean();
+    private static final ExecutorService reaper = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "pglite-reaper");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private PgliteShutdown() {
+    }
+
+    /** Closes {@code server} when the JVM exits, unless it was closed before. */
+    static void register(PgliteServerProcess server) {
+        if (hookInstalled.compareAndSet(false, true)) {
+            Runtime.getRuntime().addShutdownHook(new Thread(PgliteShutdown::closeAll, "pglite-shutdown"));
+        }
+        running.add(server);
+    }
+
+    static void deregister(PgliteServerProcess server) {
+        running.remove(server);
+    }
+
+    static boolean isRegistered(PgliteServerProcess server) {
+        return running.contains(server);
+    }
+
+    /**
+     * Deletes {@code directory} and everything below it on the reaper thread, or on the calling
+     * thread once the shutdown hook has stopped the reaper.
+     */
+    static void reap(Path directory) {
+        if (!reaper.isShutdown()) {
+            try {
+                reaper.execute(() -> delete(directory));
+                return;
+            } catch (RejectedExecutionException ex) {
+                // the hook stopped the reaper in the meantime
+            }
+        }
+        delete(directory);
+    }
+
+    private static void delete(Path directory) {
+        try {
+            PgliteServerProcess.deleteRecursively(directory);
+        } catch (IOException ex) {
+            log.debug("Failed to delete {}: {}", directory, ex.getMessage());
+        }
+    }
+
+    private static void closeAll() {
+        long deadline = System.nanoTime() + HOOK_TIMEOUT.toNanos();
+        List<Thread> closing = new ArrayList<>();
+        for (PgliteServerProcess server : List.copyOf(running)) {
+            Thread thread = new Thread(() -> close(server), "pglite-shutdown-" + server.endpoint());
+            thread.start();
+            closing.add(thread);
+        }
+        try {
+            for (Thread thread : closing) {
+                thread.join(Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())));
+            }
+            reaper.shutdown();
+            reaper.awaitTermination(Math.max(1, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void close(PgliteServerProcess server) {
+        try {
+            server.close();
+        } catch (IOException | RuntimeException ex) {
+            log.debug("Failed to stop PGlite helper on {}: {}", server.endpoint(), ex.getMessage());
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.euronext.pglite.spring.test;
+
+import org.junit.jupiter.api.extension.AfterEachCallback;
+import org.junit.jupiter.api.extension.BeforeEachCallback;
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.junit.platform.commons.support.AnnotationSupport;
+import org.springframework.context.ApplicationContext;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.Optional;
+
+/**
+ * Resets the PGlite database around each test method of a class annotated with
+ * {@code @PgliteTest(isolation = ...)}.
+ * <p>
+ * With {@code SNAPSHOT}, the first test method captures a snapshot of the freshly started
+ * context's database (after Liquibase/Flyway ran); every following method restores it inside the
+ * helper, so no DDL is replayed from the JVM. The snapshot is kept per context, so cached
+ * contexts reuse it.
+ * <p>
+ * With {@code ROLLBACK}, each method runs in an outer transaction of the single connection that
+ * is rolled back afterwards, see {@link PgliteRollbackDataSource}.
+ */
+public final class PgliteSnapshotExtension implements BeforeEachCallback, AfterEachCallback {
+    static final String BASELINE_SNAPSHOT = "pglite-baseline";
+
+    @Override
+    public void beforeEach(ExtensionContext context) throws SQLException {
+        PgliteTest.Isolation isolation = isolation(context);
+        if (isolation == PgliteTest.Isolation.ROLLBACK) {
+            rollbackDataSource(context).begin();
+            return;
+        }
+        if (isolation != PgliteTest.Isolation.SNAPSHOT) {
+            return;
+        }
+        ApplicationContext applicationContext = SpringExtension.getApplicationContext(context);
+        PgliteServerRegistry.Lease lease = applicationContext.getBean(PgliteServerRegistry.Lease.class);
+        synchronized (lease) {
+            if (lease.hasSnapshot(BASELINE_SNAPSHOT)) {
+                lease.restore(BASELINE_SNAPSHOT);
+            } else {
+                lease.snapshot(BASELINE_SNAPSHOT);
+            }
+        }
+    }
+
+    @Override
+    public void afterEach(ExtensionContext context) throws SQLException {
+        if (isolation(context) == PgliteTest.Isolation.ROLLBACK) {
+            rollbackDataSource(context).end();
+        }
+    }
+
+    private static PgliteRollbackDataSource rollbackDataSource(ExtensionContext context) {
+        DataSource dataSource = SpringExtension.getApplicationContext(context).getBean(DataSource.class);
+        try {
+            return dataSource.unwrap(PgliteRollbackDataSource.class);
+        } catch (SQLException ex) {
+            throw new IllegalStateException("@PgliteTest(isolation = ROLLBACK) needs the single-connection PGlite "
+                    + "DataSource (pglite.max-connections=1), found " + dataSource, ex);
+        }
+    }
+
+    static PgliteTest.Isolation isolation(ExtensionContext context) {
+        Optional<ExtensionContext> current = Optional.of(context);
+        while (current.isPresent()) {
+            Optional<PgliteTest> annotation = current.flatMap(ExtensionContext::getTestClass)
+                    .flatMap(type -> AnnotationSupport.findAnnotation(type, PgliteTest.class));
+            if (annotation.isPresent()) {
+                return annotation.get().isolation();
+            }
+            current = current.get().getParent();
+        }
+        return PgliteTest.Isolation.NONE;
+    }
+}
@@ -0,0 +1,103 @@
+package com.euronext.pglite.spring.test;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * JVM-wide pool of pre-started helpers, filled in the background.
+ * <p>
+ * The first {@link PgliteServerProcess#start()} for a given {@link LaunchKey} cold-starts as usual
+ * and launches {@code pglite.standby-pool-size} more helpers behind it. Later starts with the same
+ * key take a helper that already printed READY, and the pool refills itself asynchronously.
+ * Standby helpers shut down with the JVM like any other helper.
+ */
+final class PgliteStandbyPool {
+    private static final Logger log = LoggerFactory.getLogger(PgliteStandbyPool.class);
+
+    private static final Map<LaunchKey, Slot> slots = new HashMap<>();
+    private static final ExecutorService launcher = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "pglite-standby");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private PgliteStandbyPool() {
+    }
+
+    /**
+     * Returns a started helper matching {@code requester}, or {@code null} when none is ready yet.
+     * Either way the pool is topped up to the requested size.
+     */
+    static PgliteServerProcess take(PgliteServerProcess requester) {
+        LaunchKey key = requester.launchKey();
+        PgliteServerProcess ready;
+        synchronized (slots) {
+            Slot slot = slots.computeIfAbsent(key, k -> new Slot());
+            slot.size = Math.max(slot.size, requester.standbyPoolSize());
+            ready = slot.ready.pollFirst();
+            refill(key, slot, requester.properties());
+        }
+        if (ready != null) {
+            log.debug("Using standby PGlite helper on {}", ready.endpoint());
+        }
+        return ready;
+    }
+
+    static int readyCount(LaunchKey key) {
+        synchronized (slots) {
+            Slot slot = slots.get(key);
+            return slot == null ? 0 : slot.ready.size();
+        }
+    }
+
+    private static void refill(LaunchKey key, Slot slot, PgliteProperties props) {
+        while (slot.ready.size() + slot.starting < slot.size) {
+            slot.starting++;
+            launcher.execute(() -> launch(key, props));
+        }
+    }
+
+    private static void launch(LaunchKey key, PgliteProperties props) {
+        PgliteServerProcess standby = new PgliteServerProcess(props);
+        boolean started = false;
+        try {
+            standby.startCold();
+            started = true;
+        } catch (RuntimeException ex) {
+            log.warn("Failed to pre-start standby PGlite helper: {}", ex.getMessage());
+        } finally {
+            synchronized (slots) {
+                Slot slot = slots.get(key);
+                slot.starting--;
+                if (started) {
+                    slot.ready.addLast(standby);
+                }
+            }
+        }
+    }
+
+    private static final class Slot {
+        private final Deque<PgliteServerProcess> ready = new ArrayDeque<>();
+        private int starting;
+        private int size;
+    }
+
+    record LaunchKey(Map<String, String> environment, List<String> nodeFlags, PgliteProperties.Transport transport,
+                     String nodeCommand, String pathPrepend,
+                     String runtimeDownloadUrlTemplate, String runtimeDownloadSha256Template,
+                     String runtimeCacheDir) {
+
+        LaunchKey {
+            environment = Map.copyOf(new HashMap<>(environment));
+            nodeFlags = List.copyOf(nodeFlags);
+        }
+    }
+}
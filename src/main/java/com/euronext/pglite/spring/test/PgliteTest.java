@@ -1,5 +1,6 @@
 package com.euronext.pglite.spring.test;
 
+import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.context.annotation.Import;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.TestPropertySource;
@@ -12,5 +13,25 @@ import java.lang.annotation.*;
 @Inherited
 @ContextConfiguration(initializers = PgliteContextInitializer.class)
 @TestPropertySource(properties = {"pglite.enabled=true"})
-public @interface PgliteTest { }
+@ExtendWith(PgliteSnapshotExtension.class)
+public @interface PgliteTest {
 
+    /** How database state is reset between test methods. */
+    Isolation isolation() default Isolation.NONE;
+
+    enum Isolation {
+        /** Tests see each other's changes. */
+        NONE,
+        /**
+         * The database is captured once, after the context (and its migrations) started, and
+         * restored from that in-memory snapshot before every later test method.
+         */
+        SNAPSHOT,
+        /**
+         * Every test method runs inside one transaction of the physical connection, rolled back
+         * when it ends; the application's own transactions and commits become savepoints inside
+         * it. Needs the single-connection DataSource ({@code pglite.max-connections=1}).
+         */
+        ROLLBACK
+    }
+}
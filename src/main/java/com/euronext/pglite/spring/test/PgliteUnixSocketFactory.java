@@ -0,0 +1,348 @@
+package com.euronext.pglite.spring.test;
+
+import javax.net.SocketFactory;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.net.SocketAddress;
+import java.net.SocketException;
+import java.net.SocketOption;
+import java.net.SocketTimeoutException;
+import java.net.StandardSocketOptions;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * pgjdbc {@code socketFactory} that connects to the helper's Unix domain socket.
+ * <p>
+ * Used through {@code socketFactory=com.euronext.pglite.spring.test.PgliteUnixSocketFactory&socketFactoryArg=<path>};
+ * the host and port of the JDBC URL are ignored. The channel is non-blocking underneath, so reads
+ * honour {@link Socket#setSoTimeout} like a TCP socket does, which pgjdbc relies on for
+ * {@code socketTimeout} and for waiting on notifications.
+ */
+public final class PgliteUnixSocketFactory extends SocketFactory {
+    private final UnixDomainSocketAddress address;
+
+    /** Called reflectively by pgjdbc with the value of {@code socketFactoryArg}. */
+    public PgliteUnixSocketFactory(String path) {
+        if (path == null || path.isBlank()) {
+            throw new IllegalArgumentException("socketFactoryArg must name the PGlite socket path");
+        }
+        this.address = UnixDomainSocketAddress.of(path);
+    }
+
+    @Override
+    public Socket createSocket() {
+        return new UnixSocket(address);
+    }
+
+    @Override
+    public Socket createSocket(String host, int port) throws IOException {
+        return connected();
+    }
+
+    @Override
+    public Socket createSocket(String host, int port, InetAddress localHost, int localPort) throws IOException {
+        return connected();
+    }
+
+    @Override
+    public Socket createSocket(InetAddress host, int port) throws IOException {
+        return connected();
+    }
+
+    @Override
+    public Socket createSocket(InetAddress address, int port, InetAddress localAddress, int localPort)
+            throws IOException {
+        return connected();
+    }
+
+    private Socket connected() throws IOException {
+        Socket socket = createSocket();
+        socket.connect(null);
+        return socket;
+    }
+
+    /**
+     * {@link Socket} facade over a Unix domain {@link SocketChannel}, whose own {@code socket()}
+     * adaptor is not supported for this address family.
+     */
+    private static final class UnixSocket extends Socket {
+        private final UnixDomainSocketAddress address;
+        private SocketChannel channel;
+        private Selector readable;
+        private Selector writable;
+        private InputStream in;
+        private OutputStream out;
+        private volatile int soTimeout;
+        private boolean closed;
+
+        private UnixSocket(UnixDomainSocketAddress address) {
+            this.address = address;
+        }
+
+        @Override
+        public synchronized void connect(SocketAddress endpoint) throws IOException {
+            connect(endpoint, 0);
+        }
+
+        @Override
+        public synchronized void connect(SocketAddress endpoint, int timeout) throws IOException {
+            if (closed) {
+                throw new IOException("Socket is closed");
+            }
+            channel = SocketChannel.open(address);
+            channel.configureBlocking(false);
+            readable = Selector.open();
+            writable = Selector.open();
+            channel.register(readable, SelectionKey.OP_READ);
+            channel.register(writable, SelectionKey.OP_WRITE);
+            in = new In();
+            out = new Out();
+        }
+
+        @Override
+        public synchronized InputStream getInputStream() throws IOException {
+            requireConnected();
+            return in;
+        }
+
+        @Override
+        public synchronized OutputStream getOutputStream() throws IOException {
+            requireConnected();
+            return out;
+        }
+
+        private void requireConnected() throws IOException {
+            if (channel == null) {
+                throw new IOException("Socket is not connected");
+            }
+        }
+
+        @Override
+        public synchronized boolean isConnected() {
+            return channel != null;
+        }
+
+        @Override
+        public synchronized boolean isClosed() {
+            return closed;
+        }
+
+        @Override
+        public synchronized void close() throws IOException {
+            closed = true;
+            if (channel != null) {
+                // closing the selectors wakes up a thread waiting in read or write
+                readable.close();
+                writable.close();
+                channel.close();
+            }
+        }
+
+        @Override
+        public synchronized void shutdownInput() throws IOException {
+            requireConnected();
+            channel.shutdownInput();
+        }
+
+        @Override
+        public synchronized void shutdownOutput() throws IOException {
+            requireConnected();
+            channel.shutdownOutput();
+        }
+
+        @Override
+        public void setTcpNoDelay(boolean on) {
+            // no Nagle on a local socket
+        }
+
+        @Override
+        public boolean getTcpNoDelay() {
+            return true;
+        }
+
+        @Override
+        public void setKeepAlive(boolean on) {
+        }
+
+        @Override
+        public boolean getKeepAlive() {
+            return false;
+        }
+
+        @Override
+        public void setSoTimeout(int timeout) throws SocketException {
+            if (timeout < 0) {
+                throw new IllegalArgumentException("timeout can't be negative");
+            }
+            this.soTimeout = timeout;
+        }
+
+        @Override
+        public int getSoTimeout() {
+            return soTimeout;
+        }
+
+        /**
+         * Waits until {@code selector} reports the channel ready, for at most {@code timeout}
+         * milliseconds, or indefinitely when it is 0.
+         */
+        private void await(Selector selector, int timeout) throws IOException {
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+            try {
+                while (true) {
+                    if (!selector.isOpen()) {
+                        throw new SocketException("Socket is closed");
+                    }
+                    long wait = 0;
+                    if (timeout > 0) {
+                        long remaining = deadline - System.nanoTime();
+                        if (remaining <= 0) {
+                            throw new SocketTimeoutException("Read timed out");
+                        }
+                        wait = Math.max(1, TimeUnit.NANOSECONDS.toMillis(remaining));
+                    }
+                    int ready = selector.select(wait);
+                    selector.selectedKeys().clear();
+                    if (ready > 0) {
+                        return;
+                    }
+                }
+            } catch (ClosedSelectorException ex) {
+                throw new SocketException("Socket is closed");
+            }
+        }
+
+        /** Reads through a small buffer so that {@link #available()} can look ahead without blocking. */
+        private final class In extends InputStream {
+            private final ByteBuffer buffer = ByteBuffer.allocate(8192).flip();
+
+            @Override
+            public int read() throws IOException {
+                byte[] one = new byte[1];
+                return read(one, 0, 1) < 0 ? -1 : one[0] & 0xff;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                Objects.checkFromIndexSize(off, len, b.length);
+                if (len == 0) {
+                    return 0;
+                }
+                if (!buffer.hasRemaining() && fill(true) < 0) {
+                    return -1;
+                }
+                int n = Math.min(len, buffer.remaining());
+                buffer.get(b, off, n);
+                return n;
+            }
+
+            @Override
+            public int available() throws IOException {
+                if (!buffer.hasRemaining()) {
+                    fill(false);
+                }
+                return buffer.remaining();
+            }
+
+            private int fill(boolean block) throws IOException {
+                buffer.clear();
+                try {
+                    int n = channel.read(buffer);
+                    while (n == 0 && block) {
+                        await(readable, soTimeout);
+                        n = channel.read(buffer);
+                    }
+                    return n;
+                } finally {
+                    buffer.flip();
+                }
+            }
+
+            @Override
+            public void close() throws IOException {
+                UnixSocket.this.close();
+            }
+        }
+
+        private final class Out extends OutputStream {
+            @Override
+            public void write(int b) throws IOException {
+                write(new byte[]{(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                ByteBuffer source = ByteBuffer.wrap(b, off, len);
+                while (source.hasRemaining()) {
+                    if (channel.write(source) == 0) {
+                        await(writable, 0);
+                    }
+                }
+            }
+
+            @Override
+            public void close() throws IOException {
+                UnixSocket.this.close();
+            }
+        }
+
+        @Override
+        public synchronized void setReceiveBufferSize(int size) throws SocketException {
+            setChannelOption(StandardSocketOptions.SO_RCVBUF, size);
+        }
+
+        @Override
+        public synchronized int getReceiveBufferSize() throws SocketException {
+            return getChannelOption(StandardSocketOptions.SO_RCVBUF);
+        }
+
+        @Override
+        public synchronized void setSendBufferSize(int size) throws SocketException {
+            setChannelOption(StandardSocketOptions.SO_SNDBUF, size);
+        }
+
+        @Override
+        public synchronized int getSendBufferSize() throws SocketException {
+            return getChannelOption(StandardSocketOptions.SO_SNDBUF);
+        }
+
+        private void setChannelOption(SocketOption<Integer> option, int value) throws SocketException {
+            try {
+                if (channel != null) {
+                    channel.setOption(option, value);
+                }
+            } catch (IOException ex) {
+                throw socketException(ex);
+            }
+        }
+
+        private int getChannelOption(SocketOption<Integer> option) throws SocketException {
+            try {
+                return channel == null ? 0 : channel.getOption(option);
+            } catch (IOException ex) {
+                throw socketException(ex);
+            }
+        }
+
+        private static SocketException socketException(IOException cause) {
+            SocketException ex = new SocketException(cause.getMessage());
+            ex.initCause(cause);
+            return ex;
+        }
+
+        @Override
+        public String toString() {
+            return "UnixSocket[" + address + "]";
+        }
+    }
+}
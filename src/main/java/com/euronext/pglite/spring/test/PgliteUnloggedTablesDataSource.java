@@ -0,0 +1,73 @@
+package com.euronext.pglite.spring.test;
+
+import javax.sql.DataSource;
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Creates tables as {@code UNLOGGED}, so their writes skip WAL entirely.
+ * <p>
+ * Every SQL string passed to a connection or statement has its {@code CREATE TABLE} statements
+ * rewritten to {@code CREATE UNLOGGED TABLE}, which covers Liquibase and Flyway as well as the
+ * tests. Partitioned tables and partitions are left alone because Postgres cannot make them
+ * unlogged, and so are temporary tables. The rewrite is textual: a {@code CREATE TABLE} inside a
+ * string literal or a function body is rewritten too.
+ */
+final class PgliteUnloggedTablesDataSource extends PgliteDelegatingDataSource {
+
+    private static final Pattern CREATE_TABLE = Pattern.compile(
+            "(^|;)(\\s*)create(\\s+)table\\b(?![^;]*\\bpartition\\s+(?:by|of)\\b)",
+            Pattern.CASE_INSENSITIVE);
+
+    private static final Set<String> SQL_METHODS = Set.of(
+            "prepareStatement", "prepareCall", "nativeSQL",
+            "execute", "executeQuery", "executeUpdate", "executeLargeUpdate", "addBatch");
+
+    PgliteUnloggedTablesDataSource(DataSource target) {
+        super(target);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return wrap(super.getConnection(), Connection.class);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return wrap(super.getConnection(username, password), Connection.class);
+    }
+
+    /** Returns {@code sql} with its {@code CREATE TABLE} statements made unlogged. */
+    static String rewrite(String sql) {
+        return CREATE_TABLE.matcher(sql).replaceAll("$1$2CREATE$3UNLOGGED TABLE");
+    }
+
+    private static <T> T wrap(T target, Class<T> type) {
+        return PgliteJdbcHandler.proxy(type, new Handler(target));
+    }
+
+    private static final class Handler extends PgliteJdbcHandler {
+
+        private Handler(Object target) {
+            super(target);
+        }
+
+        @Override
+        Object handle(Method method, Object[] args) throws Throwable {
+            if (SQL_METHODS.contains(method.getName()) && args != null && args.length > 0 && args[0] instanceof String sql) {
+                args[0] = rewrite(sql);
+            }
+            return forward(method, args);
+        }
+
+        // statements are wrapped too, since Liquibase and Flyway execute plain Statements
+        @Override
+        <T extends Statement> T wrapStatement(T statement, Class<T> type, Object[] args) {
+            return wrap(statement, type);
+        }
+    }
+}
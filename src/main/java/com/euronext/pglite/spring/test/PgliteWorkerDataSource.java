@@ -0,0 +1,138 @@
+package com.euronext.pglite.spring.test;
+
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Routes every thread to one of several databases of the same helper, so that tests running on
+ * parallel JUnit workers do not queue behind a single PGlite backend.
+ * <p>
+ * Until {@link #seed()} runs, which the auto-configuration does once the context's migrations
+ * ran, every thread uses the lease's own database. Seeding clones all worker databases from it
+ * at once, after which threads are assigned round-robin. With a single-connection setup every
+ * thread gets its own physical connection to its database, so threads sharing a database never
+ * interleave their transactions on one connection; the helper queues them instead. With a pool
+ * ({@code pglite.max-connections} above 1) the threads of a database share its pool.
+ * <p>
+ * Every DataSource created along the way, on whichever thread, is remembered so that
+ * {@link #close()} can close them all before the lease drops the worker databases.
+ */
+final class PgliteWorkerDataSource extends AbstractDataSource implements AutoCloseable {
+    private final PgliteServerRegistry.Lease lease;
+    private final String[] databases;
+    private final Function<String, DataSource> dataSourceFor;
+    private final DataSource[] shared;
+    private final ThreadLocal<DataSource[]> perThread;
+    private final List<DataSource> created = new CopyOnWriteArrayList<>();
+    private final AtomicInteger nextWorker = new AtomicInteger();
+    private final ThreadLocal<Integer> worker;
+    private volatile boolean seeded;
+
+    PgliteWorkerDataSource(PgliteServerRegistry.Lease lease, int workers, boolean connectionPerThread,
+                           Function<String, DataSource> dataSourceFor) {
+        this.lease = lease;
+        this.databases = new String[workers];
+        this.dataSourceFor = dataSourceFor;
+        this.shared = connectionPerThread ? null : new DataSource[workers];
+        this.perThread = connectionPerThread ? ThreadLocal.withInitial(() -> new DataSource[workers]) : null;
+        this.worker = ThreadLocal.withInitial(() -> nextWorker.getAndIncrement() % workers);
+        for (int i = 0; i < workers; i++) {
+            databases[i] = i == 0 ? lease.database() : lease.database() + "_w" + (i + 1);
+        }
+    }
+
+    /** Clones every worker database from the lease's database; later calls do nothing. */
+    synchronized void seed() {
+        if (seeded) {
+            return;
+        }
+        for (int i = 1; i < databases.length; i++) {
+            lease.cloneInto(databases[i]);
+        }
+        seeded = true;
+    }
+
+    /** Database the calling thread is routed to. */
+    String currentDatabase() {
+        return databases[current()];
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return target().getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return target().getConnection(username, password);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return (T) this;
+        }
+        return target().unwrap(iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(this) || target().isWrapperFor(iface);
+    }
+
+    /** Closes every DataSource handed to any thread; the first failure is rethrown after the rest. */
+    @Override
+    public void close() throws Exception {
+        Exception failure = null;
+        for (DataSource dataSource : created) {
+            try {
+                PgliteDelegatingDataSource.close(dataSource);
+            } catch (Exception ex) {
+                if (failure == null) {
+                    failure = ex;
+                } else {
+                    failure.addSuppressed(ex);
+                }
+            }
+        }
+        created.clear();
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private int current() {
+        return seeded ? worker.get() : 0;
+    }
+
+    private DataSource target() {
+        int current = current();
+        if (perThread != null) {
+            DataSource[] own = perThread.get();
+            if (own[current] == null) {
+                own[current] = create(databases[current]);
+            }
+            return own[current];
+        }
+        synchronized (shared) {
+            if (shared[current] == null) {
+                shared[current] = create(databases[current]);
+            }
+            return shared[current];
+        }
+    }
+
+    private DataSource create(String database) {
+        DataSource dataSource = dataSourceFor.apply(database);
+        created.add(dataSource);
+        return dataSource;
+    }
+}
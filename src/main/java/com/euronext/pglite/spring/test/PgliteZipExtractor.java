@@ -0,0 +1,156 @@
+package com.euronext.pglite.spring.test;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Predicate;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Extracts a zip archive with random access and several threads.
+ * <p>
+ * The helper runtime is thousands of small {@code node_modules} files plus a few large ones
+ * ({@code pglite.wasm}, {@code node.exe}), so a sequential {@code ZipInputStream} is bound by one
+ * thread and one syscall round per file. Here all directories are created in a single pass, file
+ * entries are inflated concurrently on a bounded pool of virtual threads, and large entries are
+ * copied through a large buffer.
+ */
+final class PgliteZipExtractor {
+    private static final Logger log = LoggerFactory.getLogger(PgliteZipExtractor.class);
+
+    private static final long LARGE_ENTRY = 1024 * 1024;
+    private static final int LARGE_BUFFER = 1024 * 1024;
+    private static final int SMALL_BUFFER = 16 * 1024;
+
+    private PgliteZipExtractor() {
+    }
+
+    /**
+     * Extracts a classpath resource. ZipFile needs a real file, so a resource that is not one
+     * (e.g. inside the starter jar) is first copied next to {@code destination}.
+     */
+    static void extractResource(Class<?> owner, String resource, Path destination,
+                                Predicate<String> executable) throws IOException {
+        URL url = owner.getResource(resource);
+        if (url == null) {
+            throw new IllegalStateException("Resource " + resource + " not found on classpath");
+        }
+        if ("file".equals(url.getProtocol())) {
+            try {
+                extract(Path.of(url.toURI()), destination, executable);
+                return;
+            } catch (URISyntaxException ex) {
+                log.debug("Cannot map {} to a file, copying it first: {}", url, ex.getMessage());
+            }
+        }
+        Path copy = Files.createTempFile(destination.toAbsolutePath().getParent(), ".archive", ".zip");
+        try {
+            try (InputStream in = url.openStream()) {
+                Files.copy(in, copy, StandardCopyOption.REPLACE_EXISTING);
+            }
+            extract(copy, destination, executable);
+        } finally {
+            Files.deleteIfExists(copy);
+        }
+    }
+
+    static void extract(Path archive, Path destination, Predicate<String> executable) throws IOException {
+        long started = System.nanoTime();
+        Path root = destination.toAbsolutePath().normalize();
+        Files.createDirectories(root);
+        try (ZipFile zip = new ZipFile(archive.toFile())) {
+            List<ZipEntry> files = new ArrayList<>();
+            TreeSet<Path> directories = new TreeSet<>();
+            long bytes = 0;
+            for (Enumeration<? extends ZipEntry> entries = zip.entries(); entries.hasMoreElements(); ) {
+                ZipEntry entry = entries.nextElement();
+                Path target = resolve(root, entry);
+                if (entry.isDirectory()) {
+                    directories.add(target);
+                } else {
+                    directories.add(target.getParent());
+                    files.add(entry);
+                    bytes += Math.max(entry.getSize(), 0);
+                }
+            }
+            for (Path directory : directories) {
+                Files.createDirectories(directory);
+            }
+
+            int threads = Math.max(2, Math.min(8, Runtime.getRuntime().availableProcessors()));
+            ExecutorService pool = Executors.newFixedThreadPool(threads,
+                    Thread.ofVirtual().name("pglite-unzip-", 0).factory());
+            try {
+                List<Future<?>> tasks = new ArrayList<>(files.size());
+                for (ZipEntry entry : files) {
+                    tasks.add(pool.submit(() -> {
+                        write(zip, entry, resolve(root, entry), executable);
+                        return null;
+                    }));
+                }
+                for (Future<?> task : tasks) {
+                    await(task);
+                }
+            } finally {
+                pool.shutdownNow();
+            }
+            log.info("Extracted {} files ({} MiB) from {} in {} ms using {} threads",
+                    files.size(), bytes / (1024 * 1024), archive.getFileName(),
+                    (System.nanoTime() - started) / 1_000_000, threads);
+        }
+    }
+
+    private static Path resolve(Path root, ZipEntry entry) throws IOException {
+        Path target = root.resolve(entry.getName()).normalize();
+        if (!target.startsWith(root)) {
+            throw new IOException("Zip entry outside target dir: " + entry.getName());
+        }
+        return target;
+    }
+
+    private static void write(ZipFile zip, ZipEntry entry, Path target, Predicate<String> executable)
+            throws IOException {
+        byte[] buffer = new byte[entry.getSize() > LARGE_ENTRY ? LARGE_BUFFER : SMALL_BUFFER];
+        try (InputStream in = zip.getInputStream(entry);
+             OutputStream out = Files.newOutputStream(target)) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+        }
+        if (executable.test(entry.getName())) {
+            target.toFile().setExecutable(true, false);
+        }
+    }
+
+    private static void await(Future<?> task) throws IOException {
+        try {
+            task.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while extracting archive", ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof IOException io) {
+                throw io;
+            }
+            throw new IOException("Failed to extract archive entry", ex.getCause());
+        }
+    }
+}
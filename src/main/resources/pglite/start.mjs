@@ -4,10 +4,72 @@
  * The script uses pg-gateway to wrap PGlite with a PostgreSQL wire protocol server,
  * so that the Java configuration only needs to launch a long-running process and wait
  * until a single JSON READY message is printed on stdout.
+ *
+ * When PGLITE_MULTI_DATABASE is enabled the helper is shared by several Spring contexts:
+ * every database name requested in a startup packet gets its own PGlite instance.
+ *
+ * A PGlite instance is a single backend, so several client sockets are multiplexed onto it
+ * by a per-instance scheduler: one client owns the backend from its first statement until a
+ * ReadyForQuery reports it idle again, while the others wait in FIFO order. Named prepared
+ * statements and portals are scoped per socket so clients cannot clash on names like S_1.
+ *
+ * Extended-protocol messages are appended in place to a reusable per-socket buffer until Sync
+ * or Flush, and the whole batch runs as one call. Responses are streamed back to the socket as
+ * PGlite produces them when the installed PGlite offers execProtocolRawStream.
+ *
+ * COPY ... FROM STDIN is answered with a CopyInResponse straight away; the query, the CopyData
+ * messages and the closing CopyDone/CopyFail are then run as one batch, because PGlite can only
+ * consume the copy stream from the same input buffer as the COPY statement.
+ *
+ * With PGLITE_STATEMENT_CACHE_SIZE above 0, simple Query messages whose only varying parts are
+ * pgjdbc-style inlined parameters ('value'::type, as sent with preferQueryMode=simple) run as
+ * Bind/Execute of a named statement prepared once per backend, kept in an LRU of that size.
+ *
+ * With PGLITE_FETCH_ROWS above 0, an Execute without a row limit runs as a series of Executes of
+ * that many rows: each fetch is written to the socket before the next one is run, so a large
+ * result is never held in full by the helper. The client still sees a single Execute; the
+ * intermediate PortalSuspended messages are dropped and the closing CommandComplete counts the
+ * rows of all fetches. Executes that carry their own limit (pgjdbc setFetchSize cursors) are
+ * passed through and answered with PortalSuspended by PGlite itself.
+ *
+ * PGlite would compile pglite.wasm and read its filesystem bundle for every instance; the helper
+ * does both once and hands the results to every instance it opens. With NODE_COMPILE_CACHE set,
+ * Node also keeps the compiled JavaScript on disk for the next helper.
+ *
+ * With PGLITE_BOOT_IMAGE_DIR set, new instances skip initdb: the first helper for a PGlite version
+ * dumps its pristine data directory to pglite-<version>.tar there, and later ones load that image.
+ *
+ * With PGLITE_WORKER_THREADS=true every PGlite instance runs on its own worker thread (this same
+ * script, started with isMainThread false) behind a WorkerPGlite stand-in, so the databases of a
+ * multi-database helper execute on separate cores. The clone command seeds a database from another
+ * one, which is how the JVM fans one migrated database out to its parallel test workers.
+ *
+ * PGLITE_INITIAL_MEMORY sets the initial WASM memory of every instance and PGLITE_SETTINGS_JSON
+ * holds Postgres settings applied to each instance right after it opens; V8 heap and WASM memory
+ * limits arrive as Node flags.
+ *
+ * With PGLITE_SOCKET_PATH set the helper listens on that Unix domain socket instead of TCP.
+ *
+ * Control messages are JSON objects, e.g. {"id":1,"cmd":"snapshot","database":"postgres","name":"b"}
+ * answered by {"event":"RESPONSE","id":1,"ok":true}, plus the unsolicited {"event":"READY",...}.
+ * With PGLITE_CONTROL_PORT set the helper connects back to that loopback port and exchanges them
+ * as frames (4-byte big-endian length, UTF-8 JSON), so logs on stdout/stderr can never be mistaken
+ * for protocol and admin traffic never touches the PGWire listener. The first frame is
+ * {"event":"HELLO","token":...} with PGLITE_CONTROL_TOKEN, which the JVM requires before it trusts
+ * the connection. Without PGLITE_CONTROL_PORT, requests are read
+ * as lines from stdin and answered as lines on stdout. Commands: ping, snapshot, restore, reset,
+ * dump, load, clone, drop, stats, memory, vacuum, metrics and shutdown, which closes every database
+ * and is answered once they are closed; the helper exits when the control channel closes after it. The first metrics command switches on
+ * latency sampling of protocol batches; every metrics command drains the samples taken since.
  */
 
 import { PGlite } from '@electric-sql/pglite';
+import { createHash } from 'node:crypto';
+import { mkdir, readFile, rename, rm, writeFile } from 'node:fs/promises';
 import net from 'node:net';
+import { join } from 'node:path';
+import readline from 'node:readline';
+import { Worker, isMainThread, parentPort } from 'node:worker_threads';
 import { md5 } from 'pg-gateway';
 import { fromNodeSocket } from 'pg-gateway/node';
 
@@ -62,6 +124,7 @@ function pickPort(host) {
 
 async function main() {
   const host = getEnvDefault('PGLITE_HOST', DEFAULT_HOST);
+  const socketPath = process.env.PGLITE_SOCKET_PATH || null;
   const portEnv = getEnvDefault('PGLITE_PORT', DEFAULT_PORT.toString());
   let port;
 
@@ -72,7 +135,7 @@ async function main() {
     process.exit(2);
   }
 
-  if (port <= 0) {
+  if (port <= 0 && !socketPath) {
     try {
       port = await pickPort(host);
     } catch (err) {
@@ -88,26 +151,147 @@ async function main() {
     return levels[level] >= levels[logLevel];
   };
 
+  const controlPort = parseInt(getEnvDefault('PGLITE_CONTROL_PORT', '0'), 10);
+  let control = null;
+  if (controlPort > 0) {
+    try {
+      control = await ControlChannel.connect(controlPort, getEnvDefault('PGLITE_CONTROL_TOKEN', ''));
+    } catch (err) {
+      console.error(`Failed to connect control channel: ${err.message}`);
+      process.exit(7);
+    }
+  }
+  const emit = control
+    ? (message) => control.send(message)
+    : (message) => console.log(JSON.stringify(message));
+
   const validUsers = loadUserCatalog(shouldLog);
+  const primaryDatabase = getEnvDefault('PGLITE_DATABASE', 'postgres');
+  const multiDatabase = getEnvDefault('PGLITE_MULTI_DATABASE', 'false') === 'true';
+  const instances = new Map();
+  let server = null;
 
-  let db;
-  try {
-    db = new PGlite();
-    await db.waitReady;
-    if (shouldLog('INFO')) {
-      console.error('PGlite instance ready');
+  let closing = null;
+  // stops accepting clients and closes every database in parallel, once
+  const closeAll = (reason) => {
+    closing ??= (async () => {
+      if (shouldLog('INFO')) {
+        console.error(`Received ${reason}, shutting down...`);
+      }
+      server?.close(() => {
+        if (shouldLog('INFO')) {
+          console.error('Server closed');
+        }
+      });
+      await Promise.all([...instances].map(async ([name, instance]) => {
+        try {
+          await (await instance).db.close();
+          if (shouldLog('INFO')) {
+            console.error(`PGlite closed (${name})`);
+          }
+        } catch (err) {
+          console.error(`Error closing PGlite: ${err.message}`);
+          process.exit(6);
+        }
+      }));
+    })();
+    return closing;
+  };
+
+  const instanceFor = (database) => {
+    const name = multiDatabase && database ? database : primaryDatabase;
+    let instance = instances.get(name);
+    if (!instance) {
+      instance = createInstance(name, shouldLog);
+      instances.set(name, instance);
+      instance.catch(() => instances.delete(name));
     }
+    return instance;
+  };
+
+  const commands = {
+    async snapshot({ database, name }) {
+      await (await instanceFor(database)).snapshot(requireName(name));
+    },
+    async restore({ database, name }) {
+      await (await instanceFor(database)).restore(requireName(name));
+    },
+    async dump({ database, path }) {
+      await (await instanceFor(database)).dump(requirePath(path));
+    },
+    async load({ database, path }) {
+      await (await instanceFor(database)).load(requirePath(path));
+    },
+    async clone({ database, target }) {
+      if (!multiDatabase || !target || target === primaryDatabase) {
+        throw new Error('clone needs PGLITE_MULTI_DATABASE and a target other than the primary database');
+      }
+      const image = await (await instanceFor(database)).image();
+      const open = () => openPGlite({ loadDataDir: image });
+      if (instances.has(target)) {
+        await (await instances.get(target)).replaceWith(open);
+        return;
+      }
+      const instance = open().then((db) => new Backend(target, db));
+      instances.set(target, instance);
+      instance.catch(() => instances.delete(target));
+      await instance;
+    },
+    async reset({ database }) {
+      await (await instanceFor(database)).replaceWith(() => openBooted(shouldLog));
+    },
+    async vacuum({ database, full }) {
+      await (await instanceFor(database)).vacuum(full === true);
+    },
+    async ping() {
+    },
+    async memory() {
+      return process.memoryUsage();
+    },
+    async metrics() {
+      const databases = {};
+      for (const [name, instance] of instances) {
+        const { sessions, waiting, statementCache } = (await instance).stats();
+        databases[name] = { sessions, waiting, statementCache };
+      }
+      return { memory: process.memoryUsage(), databases, ...execMetrics.drain() };
+    },
+    async stats() {
+      const databases = {};
+      for (const [name, instance] of instances) {
+        databases[name] = (await instance).stats();
+      }
+      return { uptimeMs: Math.round(process.uptime() * 1000), databases };
+    },
+    async drop({ database }) {
+      if (!multiDatabase || !database || database === primaryDatabase || !instances.has(database)) {
+        return;
+      }
+      const instance = instances.get(database);
+      instances.delete(database);
+      await (await instance).db.close();
+    },
+    // acknowledged once every database is closed; the JVM then closes the control channel
+    async shutdown() {
+      await closeAll('shutdown command');
+    },
+  };
+
+  try {
+    await instanceFor(primaryDatabase);
   } catch (err) {
     console.error(`Failed to initialize PGlite: ${err.message}`);
     process.exit(4);
   }
 
-  const server = net.createServer(async (socket) => {
+  server = net.createServer(async (socket) => {
     if (shouldLog('DEBUG')) {
       console.error(`New client connection from ${socket.remoteAddress}:${socket.remotePort}`);
     }
 
     let connection;
+    let session;
+    const sink = (chunk) => connection.streamWriter.write(chunk);
 
     try {
       connection = await fromNodeSocket(socket, {
@@ -153,7 +337,7 @@ async function main() {
           if (shouldLog('DEBUG')) {
             console.error(`Startup received for user: ${user}`);
           }
-          await db.waitReady;
+          session = (await instanceFor(state.clientParams?.database)).openSession();
           return false;
         },
         async onMessage(data, state) {
@@ -162,7 +346,7 @@ async function main() {
           }
 
           try {
-            return await handleFrontendMessageBuffered(connection, data, db, shouldLog);
+            return await handleFrontendMessageBuffered(session, data, sink);
           } catch (err) {
             if (shouldLog('ERROR')) {
               console.error(`Error executing protocol: ${err.message}`);
@@ -197,22 +381,32 @@ async function main() {
     });
 
     socket.on('close', () => {
+      if (!session) {
+        return;
+      }
+      session.backend.closeSession(session).catch((err) => {
+        if (shouldLog('ERROR')) {
+          console.error(`Failed to clean up session ${session.id}: ${err.message}`);
+        }
+      });
     });
   });
 
-  server.listen(port, host, () => {
-    const readyPayload = {
-      event: 'READY',
-      host: host,
-      port: port,
-      pid: process.pid,
-    };
-    console.log(JSON.stringify(readyPayload));
+  const onListening = () => {
+    const readyPayload = socketPath
+      ? { event: 'READY', socket: socketPath, pid: process.pid, node: process.versions.node }
+      : { event: 'READY', host: host, port: port, pid: process.pid, node: process.versions.node };
+    emit(readyPayload);
 
     if (shouldLog('INFO')) {
-      console.error(`PGlite server listening on ${host}:${port}`);
+      console.error(`PGlite server listening on ${socketPath ?? `${host}:${port}`}`);
     }
-  });
+  };
+  if (socketPath) {
+    server.listen(socketPath, onListening);
+  } else {
+    server.listen(port, host, onListening);
+  }
 
   server.on('error', (err) => {
     console.error(`Server error: ${err.message}`);
@@ -220,33 +414,727 @@ async function main() {
   });
 
   const shutdown = async (signal) => {
+    await closeAll(signal);
+    process.exit(0);
+  };
+
+  process.on('SIGINT', () => shutdown('SIGINT'));
+  process.on('SIGTERM', () => shutdown('SIGTERM'));
+
+  if (control) {
+    control.onMessage((request) => runControlCommand(request, commands, emit));
+    control.onClose(() => shutdown('control channel closed'));
+  }
+  readline.createInterface({ input: process.stdin, crlfDelay: Infinity })
+    .on('line', (line) => handleControlLine(line, commands, emit, shouldLog))
+    .on('close', () => shutdown('stdin closed'));
+}
+
+async function createInstance(name, shouldLog) {
+  const db = await openBooted(shouldLog);
+  if (shouldLog('INFO')) {
+    console.error(`PGlite instance ready (${name})`);
+  }
+  return new Backend(name, db);
+}
+
+/** Opens a fresh instance from the boot image when there is one, otherwise runs initdb and saves it. */
+async function openBooted(shouldLog) {
+  const image = await bootImagePath();
+  if (image === null) {
+    return openPGlite();
+  }
+  try {
+    const db = await openPGlite({ loadDataDir: new Blob([await readFile(image)]) });
+    if (shouldLog('DEBUG')) {
+      console.error(`Booted from ${image}`);
+    }
+    return db;
+  } catch (err) {
+    if (err.code !== 'ENOENT' && shouldLog('WARNING')) {
+      console.error(`Ignoring unusable boot image ${image}: ${err.message}`);
+    }
+  }
+  const db = await openPGlite();
+  try {
+    await mkdir(process.env.PGLITE_BOOT_IMAGE_DIR, { recursive: true });
+    await writeAtomically(image, await db.dumpDataDir('none'));
     if (shouldLog('INFO')) {
-      console.error(`Received ${signal}, shutting down...`);
+      console.error(`Saved boot image ${image}`);
     }
+  } catch (err) {
+    if (shouldLog('WARNING')) {
+      console.error(`Cannot save boot image ${image}: ${err.message}`);
+    }
+  }
+  return db;
+}
 
-    server.close(() => {
-      if (shouldLog('INFO')) {
-        console.error('Server closed');
-      }
-    });
+let sharedAssets = null;
+let sharedBootImage = null;
 
-    if (db) {
+function pgliteDist() {
+  return new URL('.', import.meta.resolve('@electric-sql/pglite'));
+}
+
+/** Boot image for the installed PGlite version and settings, or null when PGLITE_BOOT_IMAGE_DIR is unset. */
+function bootImagePath() {
+  if (sharedBootImage === null) {
+    sharedBootImage = (async () => {
+      const dir = process.env.PGLITE_BOOT_IMAGE_DIR;
+      if (!dir) {
+        return null;
+      }
       try {
-        await db.close();
-        if (shouldLog('INFO')) {
-          console.error('PGlite closed');
+        const { version } = JSON.parse(await readFile(new URL('../package.json', pgliteDist()), 'utf8'));
+        if (Object.keys(SETTINGS).length === 0) {
+          return join(dir, `pglite-${version}.tar`);
         }
+        // the image carries the ALTER SYSTEM settings, so it is only valid for the same settings
+        const settings = createHash('sha256').update(JSON.stringify(SETTINGS)).digest('hex').slice(0, 16);
+        return join(dir, `pglite-${version}-${settings}.tar`);
+      } catch (err) {
+        console.error(`Cannot determine the PGlite version, booting with initdb: ${err.message}`);
+        return null;
+      }
+    })();
+  }
+  return sharedBootImage;
+}
+
+/** Compiled pglite.wasm and the pglite.data bundle, or {} to let PGlite locate them itself. */
+function pgliteAssets() {
+  if (sharedAssets === null) {
+    sharedAssets = (async () => {
+      try {
+        const dist = pgliteDist();
+        const [wasm, data] = await Promise.all([
+          readFile(new URL('pglite.wasm', dist)),
+          readFile(new URL('pglite.data', dist)),
+        ]);
+        return { wasmModule: await WebAssembly.compile(wasm), fsBundle: new Blob([data]) };
       } catch (err) {
-        console.error(`Error closing PGlite: ${err.message}`);
-        process.exit(6);
+        console.error(`Cannot preload PGlite assets, each instance loads its own: ${err.message}`);
+        return {};
       }
+    })();
+  }
+  return sharedAssets;
+}
+
+const WORKER_THREADS = process.env.PGLITE_WORKER_THREADS === 'true';
+const INITIAL_MEMORY = Number.parseInt(process.env.PGLITE_INITIAL_MEMORY ?? '', 10);
+const SETTINGS = JSON.parse(process.env.PGLITE_SETTINGS_JSON || '{}');
+
+async function openPGlite(options = {}) {
+  const merged = {
+    ...(await pgliteAssets()),
+    ...(INITIAL_MEMORY > 0 ? { initialMemory: INITIAL_MEMORY } : {}),
+    ...options,
+  };
+  const db = await startPGlite(merged);
+  return Object.keys(SETTINGS).length === 0 ? db : applySettings(db, merged);
+}
+
+async function startPGlite(options) {
+  const db = WORKER_THREADS ? await WorkerPGlite.open(options) : new PGlite(options);
+  await db.waitReady;
+  return db;
+}
+
+const quoteLiteral = (value) => `'${String(value).replaceAll("'", "''")}'`;
+
+// PGlite runs a single backend without a postmaster, so reloadable settings need a reopen as well
+const REOPEN_CONTEXTS = new Set(['postmaster', 'sighup']);
+
+/**
+ * Applies PGLITE_SETTINGS_JSON to a new instance. Settings Postgres reads only at server start or
+ * on reload (shared_buffers, fsync, ...) go to postgresql.auto.conf with ALTER SYSTEM, and the
+ * instance is reopened from its own data directory once; images dumped afterwards carry them, so restores and loads of
+ * such images skip the reopen. Everything else is set on the single backend session all clients share.
+ */
+async function applySettings(db, options) {
+  const names = Object.keys(SETTINGS);
+  const list = names.map(quoteLiteral).join(', ');
+  const [{ rows: known }] = await db.exec(`SELECT name, context FROM pg_settings WHERE name IN (${list})`);
+  const contexts = new Map(known.map((row) => [row.name, row.context]));
+  const unknown = names.filter((name) => !contexts.has(name));
+  if (unknown.length > 0) {
+    await db.close();
+    throw new Error(`Unknown Postgres settings: ${unknown.join(', ')}`);
+  }
+  const [{ rows: inFile }] = await db.exec(
+    `SELECT name, setting FROM pg_file_settings WHERE applied AND name IN (${list})`);
+  const configured = new Map(inFile.map((row) => [row.name, row.setting]));
+  const atStart = names.filter((name) => REOPEN_CONTEXTS.has(contexts.get(name)));
+  const pending = atStart.filter((name) => configured.get(name) !== String(SETTINGS[name]));
+  if (pending.length > 0) {
+    for (const name of pending) {
+      await db.exec(`ALTER SYSTEM SET ${name} = ${quoteLiteral(SETTINGS[name])}`);
     }
+    const image = await db.dumpDataDir('none');
+    await db.close();
+    db = await startPGlite({ ...options, loadDataDir: image });
+  }
+  for (const name of names.filter((name) => !REOPEN_CONTEXTS.has(contexts.get(name)))) {
+    await db.exec(`SELECT set_config(${quoteLiteral(name)}, ${quoteLiteral(SETTINGS[name])}, false)`);
+  }
+  return db;
+}
 
-    process.exit(0);
+/**
+ * A PGlite instance on its own worker thread. Only the calls the helper makes are forwarded; Blob
+ * options travel as bytes and the compiled wasm module is shared with the worker. Payloads and
+ * results are copied into exact-size buffers and transferred, since cloning a view would copy the
+ * whole buffer behind it (a session's batch buffer, or WASM memory on the worker side).
+ */
+class WorkerPGlite {
+  static async open(options) {
+    const transferable = { ...options };
+    for (const key of ['fsBundle', 'loadDataDir']) {
+      if (options[key] instanceof Blob) {
+        transferable[key] = new Uint8Array(await options[key].arrayBuffer());
+      }
+    }
+    return new WorkerPGlite(transferable);
+  }
+
+  constructor(options) {
+    this.calls = new Map();
+    this.nextCall = 1;
+    this.worker = new Worker(new URL(import.meta.url));
+    this.worker.on('message', (message) => this.settle(message));
+    this.worker.on('error', (err) => this.failAll(err));
+    this.worker.on('exit', (code) => this.failAll(new Error(`PGlite worker exited with code ${code}`)));
+    this.waitReady = this.call('open', { options });
+  }
+
+  call(op, args = {}, onChunk = null, transfer = []) {
+    const id = this.nextCall++;
+    return new Promise((resolve, reject) => {
+      this.calls.set(id, { resolve, reject, onChunk });
+      this.worker.postMessage({ id, op, ...args }, transfer);
+    });
+  }
+
+  settle({ id, chunk, result, error }) {
+    const call = this.calls.get(id);
+    if (!call) {
+      return;
+    }
+    if (chunk !== undefined) {
+      call.onChunk(Buffer.from(chunk.buffer, chunk.byteOffset, chunk.byteLength));
+      return;
+    }
+    this.calls.delete(id);
+    if (error !== undefined) {
+      call.reject(new Error(error));
+    } else {
+      call.resolve(result);
+    }
+  }
+
+  failAll(err) {
+    for (const call of this.calls.values()) {
+      call.reject(err);
+    }
+    this.calls.clear();
+  }
+
+  async execProtocolRaw(payload) {
+    const copy = new Uint8Array(payload);
+    const raw = await this.call('exec', { payload: copy }, null, [copy.buffer]);
+    return Buffer.from(raw.buffer, raw.byteOffset, raw.byteLength);
+  }
+
+  async execProtocolRawStream(payload, { onRawData }) {
+    const copy = new Uint8Array(payload);
+    await this.call('stream', { payload: copy }, onRawData, [copy.buffer]);
+  }
+
+  async dumpDataDir(compression) {
+    return new Blob([await this.call('dump', { compression })]);
+  }
+
+  async exec(sql) {
+    return this.call('query', { sql });
+  }
+
+  async close() {
+    try {
+      await this.call('close');
+    } finally {
+      await this.worker.terminate();
+    }
+  }
+}
+
+/** Worker side of WorkerPGlite: owns one PGlite instance and runs the forwarded calls in order. */
+function runWorker() {
+  let db = null;
+  let queue = Promise.resolve();
+  const handlers = {
+    async open({ options }) {
+      for (const key of ['fsBundle', 'loadDataDir']) {
+        if (options[key] instanceof Uint8Array) {
+          options[key] = new Blob([options[key]]);
+        }
+      }
+      db = new PGlite(options);
+      await db.waitReady;
+    },
+    exec: async ({ payload }) => new Uint8Array(await db.execProtocolRaw(payload)),
+    async stream({ id, payload }) {
+      const send = (chunk) => {
+        const copy = new Uint8Array(chunk);
+        parentPort.postMessage({ id, chunk: copy }, [copy.buffer]);
+      };
+      if (typeof db.execProtocolRawStream !== 'function') {
+        send(await db.execProtocolRaw(payload));
+        return;
+      }
+      await db.execProtocolRawStream(payload, { onRawData: send });
+    },
+    async dump({ compression }) {
+      return new Uint8Array(await (await db.dumpDataDir(compression)).arrayBuffer());
+    },
+    query: ({ sql }) => db.exec(sql),
+    async close() {
+      await db?.close();
+    },
   };
+  parentPort.on('message', (message) => {
+    queue = queue.then(async () => {
+      try {
+        const result = await handlers[message.op](message);
+        parentPort.postMessage({ id: message.id, result }, result instanceof Uint8Array ? [result.buffer] : []);
+      } catch (err) {
+        parentPort.postMessage({ id: message.id, error: err.message });
+      }
+    });
+  });
+}
 
-  process.on('SIGINT', () => shutdown('SIGINT'));
-  process.on('SIGTERM', () => shutdown('SIGTERM'));
+/** Writes a blob so that the file only ever appears complete under its final name. */
+async function writeAtomically(path, blob) {
+  const partial = `${path}.${process.pid}.part`;
+  try {
+    await writeFile(partial, Buffer.from(await blob.arrayBuffer()));
+    await rename(partial, path);
+  } finally {
+    await rm(partial, { force: true });
+  }
+}
+
+/** Length-prefixed JSON frames over the loopback socket the JVM listens on. */
+class ControlChannel {
+  static connect(port, token) {
+    return new Promise((resolve, reject) => {
+      const socket = net.connect(port, '127.0.0.1');
+      socket.once('error', reject);
+      socket.once('connect', () => {
+        socket.off('error', reject);
+        socket.setNoDelay(true);
+        const channel = new ControlChannel(socket);
+        channel.send({ event: 'HELLO', token });
+        resolve(channel);
+      });
+    });
+  }
+
+  constructor(socket) {
+    this.socket = socket;
+    this.buffered = Buffer.alloc(0);
+    socket.on('error', (err) => console.error(`Control channel error: ${err.message}`));
+  }
+
+  send(message) {
+    const body = Buffer.from(JSON.stringify(message), 'utf8');
+    const header = Buffer.allocUnsafe(4);
+    header.writeUInt32BE(body.length, 0);
+    this.socket.write(Buffer.concat([header, body]));
+  }
+
+  onMessage(handler) {
+    this.socket.on('data', (chunk) => {
+      this.buffered = this.buffered.length === 0 ? chunk : Buffer.concat([this.buffered, chunk]);
+      while (this.buffered.length >= 4) {
+        const end = 4 + this.buffered.readUInt32BE(0);
+        if (this.buffered.length < end) {
+          break;
+        }
+        const body = this.buffered.toString('utf8', 4, end);
+        this.buffered = this.buffered.subarray(end);
+        try {
+          handler(JSON.parse(body));
+        } catch (err) {
+          console.error(`Ignoring malformed control frame: ${err.message}`);
+        }
+      }
+    });
+  }
+
+  onClose(handler) {
+    this.socket.on('close', handler);
+  }
+}
+
+async function handleControlLine(line, commands, emit, shouldLog) {
+  let request;
+  try {
+    request = JSON.parse(line);
+  } catch (err) {
+    if (shouldLog('WARNING')) {
+      console.error(`Ignoring malformed control line: ${line}`);
+    }
+    return;
+  }
+  await runControlCommand(request, commands, emit);
+}
+
+async function runControlCommand(request, commands, emit) {
+  const reply = (payload) => emit({ event: 'RESPONSE', id: request.id, ...payload });
+  const command = commands[request.cmd];
+  if (!command) {
+    reply({ ok: false, error: `unknown command ${request.cmd}` });
+    return;
+  }
+  try {
+    reply({ ok: true, ...(await command(request)) });
+  } catch (err) {
+    reply({ ok: false, error: err.message });
+  }
+}
+
+function requirePath(path) {
+  if (typeof path !== 'string' || path === '') {
+    throw new Error('path is required');
+  }
+  return path;
+}
+
+function requireName(name) {
+  if (typeof name !== 'string' || name === '') {
+    throw new Error('snapshot name is required');
+  }
+  return name;
+}
+
+let nextSessionId = 1;
+
+const MAX_SAMPLES_PER_TYPE = 10_000;
+const MESSAGE_TYPES = {
+  Q: 'query', P: 'parse', B: 'bind', D: 'describe', E: 'execute', S: 'sync', H: 'flush', C: 'close', d: 'copy',
+};
+
+/** Batch latencies in microseconds, keyed by the batch's first message type, between two metrics commands. */
+class ExecMetrics {
+  constructor() {
+    this.enabled = false;
+    this.samples = new Map();
+    this.dropped = 0;
+  }
+
+  record(code, nanos) {
+    const type = MESSAGE_TYPES[String.fromCharCode(code)] ?? 'other';
+    let samples = this.samples.get(type);
+    if (!samples) {
+      samples = [];
+      this.samples.set(type, samples);
+    }
+    if (samples.length < MAX_SAMPLES_PER_TYPE) {
+      samples.push(Number(nanos / 1000n));
+    } else {
+      this.dropped++;
+    }
+  }
+
+  drain() {
+    this.enabled = true;
+    const drained = { exec: Object.fromEntries(this.samples), dropped: this.dropped };
+    this.samples = new Map();
+    this.dropped = 0;
+    return drained;
+  }
+}
+
+const execMetrics = new ExecMetrics();
+
+/**
+ * Hands one PGlite backend to one client transaction at a time. Ownership is taken on the
+ * first executed batch and released once ReadyForQuery reports the idle status; batches from
+ * other sessions queue in arrival order.
+ */
+class Backend {
+  constructor(name, db) {
+    this.name = name;
+    this.db = db;
+    this.statementCache = STATEMENT_CACHE_SIZE > 0 ? new StatementCache(STATEMENT_CACHE_SIZE) : null;
+    this.owner = null;
+    this.waiters = [];
+    this.sessions = new Set();
+    this.snapshots = new Map();
+    this.inflight = null;
+    this.gate = null;
+  }
+
+  openSession() {
+    const session = {
+      id: nextSessionId++,
+      backend: this,
+      batch: new FrameBuffer(),
+      copying: false,
+      statements: new Map(),
+      status: STATUS_IDLE,
+      closed: false,
+    };
+    this.sessions.add(session);
+    return session;
+  }
+
+  async acquire(session) {
+    if (this.owner === session) {
+      return;
+    }
+    if (this.owner === null) {
+      this.owner = session;
+      return;
+    }
+    await new Promise((resolve) => this.waiters.push({ session, resolve }));
+  }
+
+  release(session) {
+    if (this.owner !== session) {
+      return;
+    }
+    const next = this.waiters.shift();
+    this.owner = next ? next.session : null;
+    if (next) {
+      next.resolve();
+    }
+  }
+
+  /**
+   * Runs one client batch. Responses go to sink as they are produced; the returned bytes are
+   * only guaranteed to cover the end of the response, which is all readyStatus needs.
+   */
+  async exec(session, payload, sink, cacheable = false) {
+    if (session.closed) {
+      throw new Error(`session ${session.id} is closed`);
+    }
+    await this.acquire(session);
+    let raw;
+    try {
+      // an aborted transaction rejects Parse as well, which would leave the cache out of step
+      const plan = cacheable && session.status !== STATUS_FAILED ? this.statementCache?.plan(payload, sink) : null;
+      raw = await this.runFetching(plan ? plan.payload : payload, plan ? plan.sink : sink);
+      plan?.settle();
+    } catch (err) {
+      this.release(session);
+      throw err;
+    }
+    const status = readyStatus(raw);
+    if (status !== null) {
+      session.status = status;
+      if (status === STATUS_IDLE) {
+        this.release(session);
+      }
+    }
+    return raw;
+  }
+
+  async run(payload, sink) {
+    while (this.gate) {
+      await this.gate;
+    }
+    return this.execute(payload, sink);
+  }
+
+  /** Runs payload without looking at the gate, for callers that hold it. */
+  async execute(payload, sink) {
+    const started = execMetrics.enabled ? process.hrtime.bigint() : 0n;
+    this.inflight = sink ? this.stream(payload, sink) : this.db.execProtocolRaw(payload);
+    try {
+      return await this.inflight;
+    } finally {
+      this.inflight = null;
+      if (started !== 0n) {
+        execMetrics.record(payload[0], process.hrtime.bigint() - started);
+      }
+    }
+  }
+
+  /**
+   * Runs payload like run(), but with every unlimited Execute split into fetches of FETCH_ROWS
+   * rows, each one streamed to sink before the next is started. The gate is held from the first
+   * segment to the last: a suspended portal only exists in the current instance, so restore, load
+   * or reset must not swap it out between two fetches.
+   */
+  async runFetching(payload, sink) {
+    const segments = FETCH_ROWS > 0 ? splitAtUnlimitedExecutes(payload) : null;
+    if (segments === null) {
+      return this.run(payload, sink);
+    }
+    return this.exclusive(async () => {
+      let raw = EMPTY;
+      for (const { messages, portal } of segments) {
+        if (portal === null) {
+          raw = await this.execute(messages, sink);
+          continue;
+        }
+        const fetch = fetchingSink(sink);
+        raw = await this.execute(messages, fetch.sink);
+        while (fetch.suspended) {
+          fetch.next();
+          raw = await this.execute(frame(CODE_E, [cstring(portal), FETCH_LIMIT]), fetch.sink);
+        }
+      }
+      return raw;
+    });
+  }
+
+  async stream(payload, sink) {
+    if (typeof this.db.execProtocolRawStream !== 'function') {
+      const raw = await this.db.execProtocolRaw(payload);
+      if (raw.length > 0) {
+        await sink(raw);
+      }
+      return raw;
+    }
+    let tail = EMPTY;
+    let written = Promise.resolve();
+    await this.db.execProtocolRawStream(payload, {
+      onRawData: (chunk) => {
+        // The chunk may be a view of WASM memory that the next call overwrites
+        const copy = Buffer.from(chunk);
+        tail = copy.length >= READY_LENGTH ? copy : Buffer.concat([tail.subarray(-READY_LENGTH), copy]);
+        written = Promise.all([written, sink(copy)]);
+      },
+    });
+    await written;
+    return tail;
+  }
+
+  /**
+   * Runs fn while no protocol batch is executing and holds back new batches until it finishes.
+   * Client ownership is not required, so admin commands cannot deadlock on a client that keeps
+   * a transaction open.
+   */
+  async exclusive(fn) {
+    while (this.gate) {
+      await this.gate;
+    }
+    let open;
+    this.gate = new Promise((resolve) => { open = resolve; });
+    try {
+      await this.inflight?.catch(() => {});
+      return await fn();
+    } finally {
+      this.gate = null;
+      open();
+    }
+  }
+
+  /** The current data directory as an uncompressed tarball. */
+  async image() {
+    return this.exclusive(() => this.db.dumpDataDir('none'));
+  }
+
+  async snapshot(name) {
+    this.snapshots.set(name, await this.image());
+  }
+
+  async restore(name) {
+    const image = this.snapshots.get(name);
+    if (!image) {
+      throw new Error(`no snapshot named ${name} for database ${this.name}`);
+    }
+    await this.replaceWith(() => openPGlite({ loadDataDir: image }));
+  }
+
+  /** Writes the data directory as a tarball; the file appears atomically under its final name. */
+  async dump(path) {
+    await this.exclusive(async () => {
+      await writeAtomically(path, await this.db.dumpDataDir('none'));
+    });
+  }
+
+  async load(path) {
+    const image = new Blob([await readFile(path)]);
+    await this.replaceWith(() => openPGlite({ loadDataDir: image }));
+  }
+
+  async vacuum(full) {
+    await this.exclusive(async () => {
+      await this.db.exec(full ? 'VACUUM FULL' : 'VACUUM');
+    });
+  }
+
+  stats() {
+    return {
+      sessions: this.sessions.size,
+      waiting: this.waiters.length,
+      busy: this.owner !== null,
+      snapshots: [...this.snapshots.keys()],
+      statementCache: this.statementCache?.stats() ?? null,
+    };
+  }
+
+  /** Swaps in the instance returned by open(); used by restore, load and reset. */
+  async replaceWith(open) {
+    await this.exclusive(async () => {
+      const fresh = await open();
+      const previous = this.db;
+      this.db = fresh;
+      this.statementCache?.clear();
+      // Transactions and portals died with the old instance; re-create named statements so
+      // that clients holding server-side prepared statements keep working.
+      const parses = [];
+      for (const session of this.sessions) {
+        session.status = STATUS_IDLE;
+        parses.push(...session.statements.values());
+      }
+      if (parses.length > 0) {
+        await fresh.execProtocolRaw(Buffer.concat([...parses, SYNC_MESSAGE]));
+      }
+      if (this.owner !== null) {
+        const next = this.waiters.shift();
+        this.owner = next ? next.session : null;
+        next?.resolve();
+      }
+      await previous.close();
+    });
+  }
+
+  async closeSession(session) {
+    session.closed = true;
+    session.batch.reset();
+    session.copying = false;
+    this.sessions.delete(session);
+    const waiting = this.waiters.findIndex((w) => w.session === session);
+    if (waiting >= 0) {
+      this.waiters.splice(waiting, 1);
+    }
+    if (this.owner !== session && session.statements.size === 0) {
+      return;
+    }
+    await this.acquire(session);
+    try {
+      const cleanup = [SYNC_MESSAGE];
+      if (session.status !== STATUS_IDLE) {
+        cleanup.push(queryMessage('ROLLBACK'));
+      }
+      for (const name of session.statements.keys()) {
+        cleanup.push(closeMessage(CODE_S, name));
+      }
+      cleanup.push(SYNC_MESSAGE);
+      await this.run(Buffer.concat(cleanup));
+    } finally {
+      session.statements.clear();
+      session.status = STATUS_IDLE;
+      this.release(session);
+    }
+  }
 }
 
 const CODE_Q = 'Q'.charCodeAt(0);
@@ -257,40 +1145,583 @@ const CODE_E = 'E'.charCodeAt(0);
 const CODE_S = 'S'.charCodeAt(0);
 const CODE_H = 'H'.charCodeAt(0);
 const CODE_X = 'X'.charCodeAt(0);
+const CODE_C = 'C'.charCodeAt(0);
+const CODE_Z = 'Z'.charCodeAt(0);
+const CODE_G = 'G'.charCodeAt(0);
+const CODE_COPY_DATA = 'd'.charCodeAt(0);
+const CODE_COPY_DONE = 'c'.charCodeAt(0);
+const CODE_COPY_FAIL = 'f'.charCodeAt(0);
+const STATUS_IDLE = 'I'.charCodeAt(0);
+const STATUS_FAILED = 'E'.charCodeAt(0);
+const SYNC_MESSAGE = Buffer.from([CODE_S, 0, 0, 0, 4]);
+const READY_LENGTH = 6;
+const EMPTY = Buffer.alloc(0);
 
-const pendingFrontendQueue = new WeakMap();
-
-function queueFor(conn) {
-  let q = pendingFrontendQueue.get(conn);
-  if (!q) {
-    q = [];
-    pendingFrontendQueue.set(conn, q);
-  }
-  return q;
-}
-
-async function handleFrontendMessageBuffered(connection, data, db, shouldLog) {
+async function handleFrontendMessageBuffered(session, data, sink) {
   const code = data[0] | 0;
   if (code === CODE_X) return undefined; // let base close
   if (code === CODE_Q) {
-    const raw = await db.execProtocolRaw(data);
-    return raw && raw.length ? [raw] : [];
+    const copy = copyFromStdin(data);
+    if (copy) {
+      session.copying = true;
+      session.batch.append(data);
+      await sink(copyInResponse(copy));
+      return [];
+    }
+    await session.backend.exec(session, data, sink, true);
+    return []; // already written
   }
-  if (code === CODE_P || code === CODE_B || code === CODE_D || code === CODE_E) {
-    queueFor(connection).push(Buffer.from(data));
+  if (session.copying) {
+    if (code !== CODE_COPY_DATA && code !== CODE_COPY_DONE && code !== CODE_COPY_FAIL) {
+      return undefined;
+    }
+    const batch = session.batch;
+    batch.append(data);
+    if (code === CODE_COPY_DATA) {
+      return [];
+    }
+    session.copying = false;
+    try {
+      // the client already has its CopyInResponse; PGlite's own one must not reach it twice
+      await session.backend.exec(session, batch.view(), withoutLeading(CODE_G, sink));
+    } finally {
+      batch.reset();
+    }
+    return [];
+  }
+  if (code === CODE_P || code === CODE_B || code === CODE_D || code === CODE_E || code === CODE_C) {
+    if (code === CODE_P) {
+      session.backend.statementCache?.observe(Buffer.from(data.buffer, data.byteOffset, data.byteLength));
+    }
+    appendScoped(session, data);
     return []; // handled, no fallback
   }
   if (code === CODE_S || code === CODE_H) {
-    const q = queueFor(connection);
-    q.push(Buffer.from(data));
-    const payload = Buffer.concat(q);
-    q.length = 0;
-    const raw = await db.execProtocolRaw(payload);
-    return raw && raw.length ? [raw] : [];
+    const batch = session.batch;
+    batch.append(data);
+    try {
+      // PGlite copies the batch into WASM memory, so the view is not retained past this call
+      await session.backend.exec(session, batch.view(), sink);
+    } finally {
+      batch.reset();
+    }
+    return [];
   }
   return undefined; // unknown, let base decide
 }
 
+const FETCH_ROWS = Number.parseInt(process.env.PGLITE_FETCH_ROWS ?? '0', 10) || 0;
+const FETCH_LIMIT = Buffer.alloc(4);
+FETCH_LIMIT.writeInt32BE(FETCH_ROWS);
+const CODE_DATA_ROW = 'D'.charCodeAt(0);
+const CODE_PORTAL_SUSPENDED = 's'.charCodeAt(0);
+
+/**
+ * Splits a batch after each Execute that has no row limit, giving that Execute the FETCH_ROWS
+ * limit in place. Returns null when there is nothing to split, e.g. for simple Query and COPY
+ * batches.
+ */
+function splitAtUnlimitedExecutes(payload) {
+  if (payload[0] === CODE_Q) {
+    return null;
+  }
+  const segments = [];
+  let start = 0;
+  let offset = 0;
+  while (offset + 5 <= payload.length) {
+    const end = offset + 1 + payload.readInt32BE(offset + 1);
+    if (payload[offset] === CODE_E) {
+      const [portal, limitAt] = readCString(payload, offset + 5);
+      if (payload.readInt32BE(limitAt) === 0) {
+        FETCH_LIMIT.copy(payload, limitAt);
+        segments.push({ messages: payload.subarray(start, end), portal });
+        start = end;
+      }
+    }
+    offset = end;
+  }
+  if (segments.length === 0) {
+    return null;
+  }
+  if (start < payload.length) {
+    segments.push({ messages: payload.subarray(start), portal: null });
+  }
+  return segments;
+}
+
+/**
+ * Wraps sink for the fetches of one split Execute. PortalSuspended is dropped and recorded in
+ * suspended, and once a fetch was suspended the closing CommandComplete is rewritten to count
+ * the DataRows of every fetch, since PGlite's tag only covers the last one.
+ */
+function fetchingSink(sink) {
+  let header = EMPTY;
+  let remaining = 0;
+  let code = 0;
+  let tag = null;
+  let rows = 0;
+  let fetches = 1;
+  const state = {
+    suspended: false,
+    next() {
+      state.suspended = false;
+      fetches++;
+    },
+    sink(chunk) {
+      const data = Buffer.from(chunk.buffer, chunk.byteOffset, chunk.byteLength);
+      const kept = [];
+      let offset = 0;
+      while (offset < data.length) {
+        if (remaining === 0) {
+          const take = Math.min(5 - header.length, data.length - offset);
+          header = Buffer.concat([header, data.subarray(offset, offset + take)]);
+          offset += take;
+          if (header.length < 5) {
+            break;
+          }
+          code = header[0];
+          remaining = header.readInt32BE(1) - 4;
+          if (code === CODE_DATA_ROW) {
+            rows++;
+          } else if (code === CODE_PORTAL_SUSPENDED) {
+            state.suspended = true;
+          }
+          if (code === CODE_C && fetches > 1) {
+            tag = [];
+          } else if (code !== CODE_PORTAL_SUSPENDED) {
+            kept.push(header);
+          }
+          header = EMPTY;
+        } else {
+          const length = Math.min(remaining, data.length - offset);
+          const part = data.subarray(offset, offset + length);
+          if (tag) {
+            tag.push(Buffer.from(part));
+          } else if (code !== CODE_PORTAL_SUSPENDED) {
+            kept.push(part);
+          }
+          remaining -= length;
+          offset += length;
+        }
+        if (remaining === 0 && tag) {
+          const text = Buffer.concat(tag).toString('utf8').replace(/\0$/, '');
+          kept.push(frame(CODE_C, [cstring(text.replace(/\d+$/, String(rows)))]));
+          tag = null;
+        }
+      }
+      if (kept.length === 0) {
+        return undefined;
+      }
+      return sink(kept.length === 1 ? kept[0] : Buffer.concat(kept));
+    },
+  };
+  return state;
+}
+
+const STATEMENT_CACHE_SIZE = Number.parseInt(process.env.PGLITE_STATEMENT_CACHE_SIZE ?? '0', 10) || 0;
+const CACHEABLE_QUERY = /^\s*(?:select|insert|update|delete|with|values)\b/i;
+// statements after which cached plans may no longer describe the schema, or no longer exist
+const PLAN_INVALIDATING = /^\s*(?:create|alter|drop|discard|deallocate)\b/i;
+// ParseComplete, BindComplete, CloseComplete and NoData have no simple-protocol counterpart
+const EXTENDED_ONLY_RESPONSES = new Set(['1', '2', '3', 'n'].map((c) => c.charCodeAt(0)));
+const CODE_PARSE_COMPLETE = '1'.charCodeAt(0);
+const DESCRIBE_PORTAL = frame(CODE_D, [Buffer.from('P'), cstring('')]);
+const EXECUTE_PORTAL = frame(CODE_E, [cstring(''), Buffer.alloc(4)]);
+
+/**
+ * Named statements of one backend, keyed by the query text with its inlined parameters replaced
+ * by $n, least recently used first. plan() turns a simple Query message into Parse (on a miss),
+ * Bind, Describe, Execute and Sync, and filters the response back into what the Query would
+ * have produced. A statement only enters the cache once PGlite acknowledged its Parse.
+ */
+class StatementCache {
+  constructor(capacity) {
+    this.capacity = capacity;
+    this.entries = new Map();
+    this.evicted = [];
+    this.nextId = 1;
+    this.hits = 0;
+    this.misses = 0;
+  }
+
+  plan(message, sink) {
+    const sql = message.toString('utf8', 5, message.length - 1);
+    const shape = parameterize(sql);
+    if (shape === null) {
+      this.observeSql(sql);
+      return null;
+    }
+    // Close is a no-op for statements that no longer exist, e.g. after DEALLOCATE ALL
+    const parts = this.evicted.splice(0).map((name) => closeMessage(CODE_S, name));
+    let name = this.entries.get(shape.text);
+    const hit = name !== undefined;
+    if (hit) {
+      this.entries.delete(shape.text);
+      this.entries.set(shape.text, name);
+      this.hits++;
+    } else {
+      name = `pglite_cached_${this.nextId++}`;
+      parts.push(frame(CODE_P, [cstring(name), cstring(shape.text), Buffer.alloc(2)]));
+      this.misses++;
+    }
+    parts.push(bindMessage(name, shape.params), DESCRIBE_PORTAL, EXECUTE_PORTAL, SYNC_MESSAGE);
+    let parsed = false;
+    return {
+      payload: Buffer.concat(parts),
+      sink: withoutMessages(EXTENDED_ONLY_RESPONSES, sink, (code) => {
+        parsed ||= code === CODE_PARSE_COMPLETE;
+      }),
+      settle: () => {
+        if (hit || !parsed) {
+          return;
+        }
+        this.entries.set(shape.text, name);
+        if (this.entries.size > this.capacity) {
+          const [oldest, oldestName] = this.entries.entries().next().value;
+          this.entries.delete(oldest);
+          this.evicted.push(oldestName);
+        }
+      },
+    };
+  }
+
+  /** Looks at a Parse message a client sent itself, for statements that invalidate the cache. */
+  observe(parse) {
+    const [, end] = readCString(parse, 5);
+    this.observeSql(parse.toString('utf8', end, Math.min(parse.indexOf(0, end), end + 64)));
+  }
+
+  observeSql(sql) {
+    if (PLAN_INVALIDATING.test(sql)) {
+      this.evicted.push(...this.entries.values());
+      this.entries.clear();
+    }
+  }
+
+  /** Forgets every statement without closing it, for a backend that was replaced. */
+  clear() {
+    this.entries.clear();
+    this.evicted = [];
+  }
+
+  stats() {
+    return { size: this.entries.size, capacity: this.capacity, hits: this.hits, misses: this.misses };
+  }
+}
+
+/**
+ * Splits a single cacheable statement into its text with parameters as $n and their values, or
+ * returns null. Only literals in pgjdbc's inline form ('value'::type) become parameters; the
+ * type cast stays in the text, so the parameter type is inferred exactly as for the literal.
+ * Statements with comments, dollar quoting or several commands are left alone.
+ */
+function parameterize(sql) {
+  if (!CACHEABLE_QUERY.test(sql)) {
+    return null;
+  }
+  const params = [];
+  let text = '';
+  let copied = 0;
+  let i = 0;
+  while (i < sql.length) {
+    const c = sql[i];
+    if (c === "'") {
+      if (/[eE]/.test(sql[i - 1] ?? '') && !/[\w$]/.test(sql[i - 2] ?? '')) {
+        return null; // E'' strings use backslash escapes
+      }
+      let value = '';
+      let j = i + 1;
+      for (;;) {
+        const close = sql.indexOf("'", j);
+        if (close < 0) {
+          return null;
+        }
+        value += sql.slice(j, close);
+        if (sql[close + 1] !== "'") {
+          j = close + 1;
+          break;
+        }
+        value += "'";
+        j = close + 2;
+      }
+      if (sql[i - 1] === '(' && sql.startsWith('::', j)) {
+        params.push(value);
+        text += `${sql.slice(copied, i)}$${params.length}`;
+        copied = j;
+      }
+      i = j;
+    } else if (c === '"') {
+      const close = sql.indexOf('"', i + 1);
+      if (close < 0) {
+        return null;
+      }
+      i = close + 1;
+    } else if (c === ';') {
+      if (sql.slice(i + 1).trim() !== '') {
+        return null;
+      }
+      text += sql.slice(copied, i);
+      return { text, params };
+    } else if (c === '$' || (c === '-' && sql[i + 1] === '-') || (c === '/' && sql[i + 1] === '*')) {
+      return null;
+    } else {
+      i++;
+    }
+  }
+  return { text: text + sql.slice(copied), params };
+}
+
+function bindMessage(statement, params) {
+  const values = params.map((value) => Buffer.from(value, 'utf8'));
+  const body = Buffer.alloc(values.reduce((sum, value) => sum + 4 + value.length, 2 + 2 + 2));
+  let offset = body.writeInt16BE(0, 0); // text format for every parameter
+  offset = body.writeInt16BE(values.length, offset);
+  for (const value of values) {
+    offset = body.writeInt32BE(value.length, offset);
+    offset += value.copy(body, offset);
+  }
+  body.writeInt16BE(0, offset); // text format for every result column
+  return frame(CODE_B, [cstring(''), cstring(statement), body]);
+}
+
+/**
+ * Wraps sink so that whole response messages with one of the given codes are dropped, however
+ * the messages are split across chunks. seen is called with the code of every message.
+ */
+function withoutMessages(codes, sink, seen) {
+  let header = EMPTY;
+  let remaining = 0;
+  let dropping = false;
+  return (chunk) => {
+    const data = Buffer.from(chunk.buffer, chunk.byteOffset, chunk.byteLength);
+    const kept = [];
+    let offset = 0;
+    while (offset < data.length) {
+      if (remaining > 0) {
+        const length = Math.min(remaining, data.length - offset);
+        if (!dropping) {
+          kept.push(data.subarray(offset, offset + length));
+        }
+        remaining -= length;
+        offset += length;
+        continue;
+      }
+      const take = Math.min(5 - header.length, data.length - offset);
+      header = Buffer.concat([header, data.subarray(offset, offset + take)]);
+      offset += take;
+      if (header.length < 5) {
+        break;
+      }
+      seen(header[0]);
+      dropping = codes.has(header[0]);
+      remaining = header.readInt32BE(1) - 4;
+      if (!dropping) {
+        kept.push(header);
+      }
+      header = EMPTY;
+    }
+    if (kept.length === 0) {
+      return undefined;
+    }
+    return sink(kept.length === 1 ? kept[0] : Buffer.concat(kept));
+  };
+}
+
+/**
+ * Growable byte buffer reused for every batch of one socket. Messages are written in place, so
+ * a batch costs one copy of each message instead of a copy on arrival plus a concat on Sync.
+ */
+class FrameBuffer {
+  constructor() {
+    this.bytes = Buffer.allocUnsafe(FRAME_BUFFER_INITIAL);
+    this.length = 0;
+  }
+
+  append(data) {
+    this.reserve(data.length);
+    this.bytes.set(data, this.length);
+    this.length += data.length;
+  }
+
+  /** Appends a message with the given code whose body is the concatenation of parts. */
+  appendFrame(code, parts) {
+    const size = parts.reduce((sum, part) => sum + part.length, 4);
+    this.reserve(size + 1);
+    this.bytes[this.length] = code;
+    this.bytes.writeInt32BE(size, this.length + 1);
+    let offset = this.length + 5;
+    for (const part of parts) {
+      this.bytes.set(part, offset);
+      offset += part.length;
+    }
+    this.length = offset;
+  }
+
+  reserve(extra) {
+    const needed = this.length + extra;
+    if (needed <= this.bytes.length) {
+      return;
+    }
+    let capacity = this.bytes.length * 2;
+    while (capacity < needed) {
+      capacity *= 2;
+    }
+    const grown = Buffer.allocUnsafe(capacity);
+    this.bytes.copy(grown, 0, 0, this.length);
+    this.bytes = grown;
+  }
+
+  view() {
+    return this.bytes.subarray(0, this.length);
+  }
+
+  /** Empties the buffer, dropping capacity left over from an unusually large batch. */
+  reset() {
+    this.length = 0;
+    if (this.bytes.length > FRAME_BUFFER_RETAINED) {
+      this.bytes = Buffer.allocUnsafe(FRAME_BUFFER_INITIAL);
+    }
+  }
+}
+
+const FRAME_BUFFER_INITIAL = 8 * 1024;
+const FRAME_BUFFER_RETAINED = 1024 * 1024;
+
+/**
+ * Returns the transaction status byte of the trailing ReadyForQuery message, or null when the
+ * response does not end a batch (e.g. after Flush).
+ */
+function readyStatus(raw) {
+  if (!raw || raw.length < 6 || raw[raw.length - 6] !== CODE_Z) {
+    return null;
+  }
+  return raw[raw.length - 1];
+}
+
+/**
+ * Returns the column count and format of a COPY ... FROM STDIN query message, or null for any
+ * other query.
+ */
+function copyFromStdin(message) {
+  const sql = Buffer.from(message.buffer, message.byteOffset, message.byteLength)
+    .toString('utf8', 5, message.length - 1);
+  const match = /^\s*copy\s+[^(]+?(?:\(([^)]*)\))?\s+from\s+stdin\b([\s\S]*)$/i.exec(sql);
+  if (!match) {
+    return null;
+  }
+  return {
+    columns: match[1] ? match[1].split(',').length : 0,
+    binary: /\bbinary\b/i.test(match[2]),
+  };
+}
+
+function copyInResponse({ columns, binary }) {
+  const body = Buffer.alloc(3 + columns * 2);
+  body[0] = binary ? 1 : 0;
+  body.writeInt16BE(columns, 1);
+  for (let i = 0; i < columns; i++) {
+    body.writeInt16BE(binary ? 1 : 0, 3 + i * 2);
+  }
+  return frame(CODE_G, [body]);
+}
+
+/** Wraps sink so that the first response message is dropped when it has the given code. */
+function withoutLeading(code, sink) {
+  let skip = null;
+  return (chunk) => {
+    if (skip === null) {
+      const view = Buffer.from(chunk.buffer, chunk.byteOffset, chunk.byteLength);
+      skip = view[0] === code ? 1 + view.readInt32BE(1) : 0;
+    }
+    if (skip > 0) {
+      const dropped = Math.min(skip, chunk.length);
+      skip -= dropped;
+      chunk = chunk.subarray(dropped);
+    }
+    return chunk.length > 0 ? sink(chunk) : undefined;
+  };
+}
+
+/**
+ * Appends an extended-protocol message to the session batch, prefixing non-empty statement and
+ * portal names with the session id so that clients sharing a backend cannot see each other's
+ * objects. Named Parse messages are also kept so they can be replayed after a restore.
+ */
+function appendScoped(session, message) {
+  const batch = session.batch;
+  const data = Buffer.from(message.buffer, message.byteOffset, message.byteLength); // a view, not a copy
+  const code = data[0];
+  if (code === CODE_P || code === CODE_E) {
+    const [name, end] = readCString(data, 5);
+    if (!name) {
+      batch.append(data);
+      return;
+    }
+    const start = batch.length;
+    const scoped = scopedName(session, name);
+    batch.appendFrame(code, [cstring(scoped), data.subarray(end)]);
+    if (code === CODE_P) {
+      session.statements.set(scoped, Buffer.from(batch.bytes.subarray(start, batch.length)));
+    }
+    return;
+  }
+  if (code === CODE_B) {
+    const [portal, portalEnd] = readCString(data, 5);
+    const [statement, statementEnd] = readCString(data, portalEnd);
+    if (!portal && !statement) {
+      batch.append(data);
+      return;
+    }
+    batch.appendFrame(code, [
+      cstring(scopedName(session, portal)),
+      cstring(scopedName(session, statement)),
+      data.subarray(statementEnd),
+    ]);
+    return;
+  }
+  // Describe / Close: one kind byte ('S' or 'P') followed by the name
+  const kind = data[5];
+  const [name] = readCString(data, 6);
+  if (!name) {
+    batch.append(data);
+    return;
+  }
+  const scoped = scopedName(session, name);
+  if (code === CODE_C && kind === CODE_S) {
+    session.statements.delete(scoped);
+  }
+  batch.appendFrame(code, [Buffer.from([kind]), cstring(scoped)]);
+}
+
+function scopedName(session, name) {
+  return name ? `s${session.id}_${name}` : name;
+}
+
+function readCString(buffer, offset) {
+  const end = buffer.indexOf(0, offset);
+  return [buffer.toString('utf8', offset, end), end + 1];
+}
+
+function cstring(value) {
+  return Buffer.from(`${value}\0`, 'utf8');
+}
+
+function frame(code, parts) {
+  const length = parts.reduce((sum, part) => sum + part.length, 4);
+  const header = Buffer.alloc(5);
+  header[0] = code;
+  header.writeInt32BE(length, 1);
+  return Buffer.concat([header, ...parts], length + 1);
+}
+
+function queryMessage(sql) {
+  return frame(CODE_Q, [cstring(sql)]);
+}
+
+function closeMessage(kind, name) {
+  return frame(CODE_C, [Buffer.from([kind]), cstring(name)]);
+}
+
 function extractPayload(entry) {
   if (!entry) {
     return undefined;
@@ -323,12 +1754,16 @@ function createBackendKeyData(pid, secretKey) {
   return buffer;
 }
 
-main().catch((err) => {
-  console.error(`Fatal error: ${err.message}`);
-  console.error(err.stack);
-  process.exit(1);
-});
+if (isMainThread) {
+  main().catch((err) => {
+    console.error(`Fatal error: ${err.message}`);
+    console.error(err.stack);
+    process.exit(1);
+  });
 
-process.on('unhandledRejection', (reason) => {
-  console.error('Unhandled rejection:', reason);
-});
+  process.on('unhandledRejection', (reason) => {
+    console.error('Unhandled rejection:', reason);
+  });
+} else {
+  runWorker();
+}
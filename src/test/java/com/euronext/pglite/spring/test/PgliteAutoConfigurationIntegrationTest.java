@@ -1,7 +1,12 @@
 package com.euronext.pglite.spring.test;
 
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import liquibase.integration.spring.SpringLiquibase;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
 import org.springframework.boot.autoconfigure.AutoConfigurations;
 import org.springframework.boot.test.context.runner.ApplicationContextRunner;
 import org.springframework.context.annotation.Bean;
@@ -9,6 +14,18 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.jdbc.core.JdbcTemplate;
 
 import javax.sql.DataSource;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -20,7 +37,7 @@ class PgliteAutoConfigurationIntegrationTest {
             .withPropertyValues(
                     "pglite.enabled=true",
                     "pglite.database=postgres",
-                    "pglite.jdbc-params=sslmode=disable&preferQueryMode=simple"
+                    "pglite.jdbc-params=sslmode=disable"
             );
 
     @Test
@@ -35,6 +52,206 @@ class PgliteAutoConfigurationIntegrationTest {
         });
     }
 
+    @Test
+    void asyncStartupDefersTheDataSourceUntilTheHelperIsUp() {
+        contextRunner
+                .withPropertyValues("pglite.async-startup=true")
+                .withInitializer(new PgliteContextInitializer())
+                .run(context -> {
+                    assertThat(context.getBean(DataSource.class)).isInstanceOf(PgliteDeferredDataSource.class);
+                    assertThat(context.getBeansOfType(PgliteAsyncStartup.class)).hasSize(1);
+
+                    JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+                    assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM sample_people", Integer.class))
+                            .isEqualTo(2);
+                });
+    }
+
+    @Test
+    void metricsPublishStartupBreakdownAndHelperSamples() {
+        contextRunner
+                .withConfiguration(AutoConfigurations.of(PgliteMetricsAutoConfiguration.class))
+                .withBean(MeterRegistry.class, SimpleMeterRegistry::new)
+                .run(context -> {
+                    MeterRegistry registry = context.getBean(MeterRegistry.class);
+                    assertThat(registry.get("pglite.startup").tag("phase", "ready").timer().count()).isEqualTo(1);
+
+                    context.getBean(JdbcTemplate.class).queryForObject("SELECT COUNT(*) FROM sample_people", Integer.class);
+                    context.getBean(PgliteMetrics.class).poll();
+
+                    assertThat(registry.get("pglite.helper.exec").timers())
+                            .anySatisfy(timer -> assertThat(timer.count()).isPositive());
+                    assertThat(registry.get("pglite.helper.memory").tag("area", "rss").gauge().value()).isPositive();
+                    assertThat(registry.get("pglite.helper.queue.waiting").tag("database", "postgres").gauge().value())
+                            .isZero();
+                    assertThat(registry.get("pglite.control").tag("command", "metrics").functionTimer().count())
+                            .isGreaterThanOrEqualTo(1);
+                });
+    }
+
+    @Test
+    void workersRouteOtherThreadsToClonedDatabases() {
+        contextRunner.withPropertyValues("pglite.workers=2").run(context -> {
+            JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+            PgliteWorkerDataSource workers = context.getBean(DataSource.class).unwrap(PgliteWorkerDataSource.class);
+            String own = workers.currentDatabase();
+            ExecutorService executor = Executors.newSingleThreadExecutor();
+            try {
+                String other = executor.submit(workers::currentDatabase).get(30, TimeUnit.SECONDS);
+                assertThat(other).isNotEqualTo(own);
+                Integer seen = executor.submit(() -> {
+                    jdbcTemplate.update("DELETE FROM sample_people");
+                    return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM sample_people", Integer.class);
+                }).get(30, TimeUnit.SECONDS);
+                assertThat(seen).isZero();
+            } finally {
+                executor.shutdownNow();
+            }
+            Integer count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM sample_people", Integer.class);
+            assertThat(count).isEqualTo(2);
+        });
+    }
+
+    @Test
+    @DisabledOnOs(OS.WINDOWS)
+    void unixTransportConnectsThroughSocketFactory() {
+        contextRunner.withPropertyValues("pglite.transport=UNIX").run(context -> {
+            PgliteServerRegistry.Lease lease = context.getBean(PgliteServerRegistry.Lease.class);
+            assertThat(lease.jdbcUrl(null)).contains("socketFactory=" + PgliteUnixSocketFactory.class.getName());
+            assertThat(lease.server().port()).isZero();
+
+            Integer count = context.getBean(JdbcTemplate.class)
+                    .queryForObject("SELECT COUNT(*) FROM sample_people", Integer.class);
+            assertThat(count).isEqualTo(2);
+        });
+    }
+
+    @Test
+    void sharedServerIsReusedAcrossContextsWithSeparateDatabases() {
+        ApplicationContextRunner shared = contextRunner.withPropertyValues("pglite.share-server=true");
+        shared.run(first -> shared.run(second -> {
+            PgliteServerRegistry.Lease firstLease = first.getBean(PgliteServerRegistry.Lease.class);
+            PgliteServerRegistry.Lease secondLease = second.getBean(PgliteServerRegistry.Lease.class);
+            assertThat(secondLease.server()).isSameAs(firstLease.server());
+            assertThat(secondLease.database()).isNotEqualTo(firstLease.database());
+
+            first.getBean(JdbcTemplate.class).update("DELETE FROM sample_people");
+            Integer count = second.getBean(JdbcTemplate.class)
+                    .queryForObject("SELECT COUNT(*) FROM sample_people", Integer.class);
+            assertThat(count).isEqualTo(2);
+        }));
+    }
+
+    @Test
+    void standbyPoolHandsPreStartedHelperToNextContext() {
+        ApplicationContextRunner standby = contextRunner.withPropertyValues("pglite.standby-pool-size=1");
+        standby.run(first -> {
+            PgliteServerProcess server = first.getBean(PgliteServerRegistry.Lease.class).server();
+            PgliteStandbyPool.LaunchKey key = server.launchKey();
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+            while (PgliteStandbyPool.readyCount(key) == 0 && System.nanoTime() < deadline) {
+                Thread.sleep(50);
+            }
+            assertThat(PgliteStandbyPool.readyCount(key)).isEqualTo(1);
+        });
+        standby.run(second -> {
+            Integer count = second.getBean(JdbcTemplate.class)
+                    .queryForObject("SELECT COUNT(*) FROM sample_people", Integer.class);
+            assertThat(count).isEqualTo(2);
+        });
+    }
+
+    @Test
+    void copyBatchInsertsLoadBatchUpdatesThroughCopy() {
+        contextRunner.withPropertyValues("pglite.copy-batch-inserts=true").run(context -> {
+            JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+            List<Object[]> rows = new ArrayList<>();
+            for (int i = 100; i < 600; i++) {
+                rows.add(new Object[]{i, "Tab\tand \\ row " + i});
+            }
+            int[] counts = jdbcTemplate.batchUpdate(
+                    "INSERT INTO sample_people (person_id, full_name) VALUES (?, ?)", rows);
+            assertThat(counts).hasSize(500).containsOnly(1);
+
+            assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM sample_people", Integer.class))
+                    .isEqualTo(502);
+            assertThat(jdbcTemplate.queryForObject(
+                    "SELECT full_name FROM sample_people WHERE person_id = 100", String.class))
+                    .isEqualTo("Tab\tand \\ row 100");
+        });
+    }
+
+    @Test
+    void pooledDataSourceQueuesConcurrentTransactions() {
+        contextRunner.withPropertyValues("pglite.max-connections=3").run(context -> {
+            DataSource dataSource = context.getBean(DataSource.class);
+            assertThat(dataSource).isInstanceOf(HikariDataSource.class);
+
+            try (Connection writer = dataSource.getConnection()) {
+                writer.setAutoCommit(false);
+                writer.createStatement().executeUpdate(
+                        "INSERT INTO sample_people (person_id, full_name) VALUES (10, 'Queued')");
+
+                PgliteServerProcess server = context.getBean(PgliteServerRegistry.Lease.class).server();
+                List<String> order = new CopyOnWriteArrayList<>();
+                CountDownLatch readerStarted = new CountDownLatch(1);
+                ExecutorService executor = Executors.newSingleThreadExecutor();
+                try {
+                    Future<Integer> reader = executor.submit(() -> {
+                        readerStarted.countDown();
+                        Integer count = new JdbcTemplate(dataSource)
+                                .queryForObject("SELECT COUNT(*) FROM sample_people", Integer.class);
+                        order.add("read");
+                        return count;
+                    });
+                    assertThat(readerStarted.await(10, TimeUnit.SECONDS)).isTrue();
+                    awaitQueuedSessions(server, "postgres", 1);
+                    assertThat(reader.isDone()).isFalse();
+
+                    order.add("commit");
+                    writer.commit();
+                    assertThat(reader.get(10, TimeUnit.SECONDS)).isEqualTo(3);
+                    assertThat(order).containsExactly("commit", "read");
+                } finally {
+                    executor.shutdownNow();
+                }
+            }
+        });
+    }
+
+    @Test
+    void schemaCacheStoresMigratedDatabaseAndLoadsItOnNextStart() throws Exception {
+        Path cacheDir = Files.createTempDirectory("pglite-schema-cache");
+        ApplicationContextRunner cached = contextRunner.withPropertyValues(
+                "pglite.schema-cache-enabled=true",
+                "pglite.runtime-cache-dir=" + cacheDir);
+
+        cached.run(context -> {
+            Path tarball = context.getBean(PgliteSchemaCache.class).tarball();
+            assertThat(tarball).isRegularFile();
+        });
+        cached.run(context -> {
+            Integer count = context.getBean(JdbcTemplate.class)
+                    .queryForObject("SELECT COUNT(*) FROM sample_people", Integer.class);
+            assertThat(count).isEqualTo(2);
+        });
+    }
+
+    /** Waits until the helper reports {@code expected} sessions queued behind the owner of {@code database}. */
+    @SuppressWarnings("unchecked")
+    private static void awaitQueuedSessions(PgliteServerProcess server, String database, long expected) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (true) {
+            Map<String, Object> databases = (Map<String, Object>) server.stats().get("databases");
+            Map<String, Object> stats = (Map<String, Object>) databases.get(database);
+            if (((Number) stats.get("waiting")).longValue() == expected) {
+                return;
+            }
+            assertThat(System.nanoTime()).as("sessions queued on %s", database).isLessThan(deadline);
+            Thread.onSpinWait();
+        }
+    }
+
     @Configuration(proxyBeanMethods = false)
     static class LiquibaseTestConfiguration {
 
@@ -0,0 +1,98 @@
+package com.euronext.pglite.spring.test;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PgliteControlChannelTest {
+
+    @Test
+    void exchangesLengthPrefixedFramesAndRecordsLatency() throws Exception {
+        try (PgliteControlChannel channel = PgliteControlChannel.open();
+             Socket helper = new Socket("127.0.0.1", channel.port())) {
+            DataInputStream in = new DataInputStream(helper.getInputStream());
+            DataOutputStream out = new DataOutputStream(helper.getOutputStream());
+            hello(out, channel.token());
+            writeFrame(out, "{\"event\":\"READY\",\"port\":5432}");
+            assertThat(channel.ready().get(5, TimeUnit.SECONDS)).containsEntry("port", 5432L);
+
+            CompletableFuture<Map<String, Object>> response = CompletableFuture.supplyAsync(
+                    () -> channel.request("memory", Map.of(), Duration.ofSeconds(5)));
+            Map<String, Object> request = PgliteJson.parseObject(readFrame(in));
+            assertThat(request).containsEntry("cmd", "memory");
+            writeFrame(out, "{\"event\":\"RESPONSE\",\"id\":" + request.get("id") + ",\"ok\":true,\"rss\":1024}");
+
+            assertThat(response.get(5, TimeUnit.SECONDS)).containsEntry("rss", 1024L);
+            assertThat(channel.latencies()).containsOnlyKeys("memory");
+            assertThat(channel.latencies().get("memory").count()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    void failedResponseAndClosedHelperSurfaceAsIllegalState() throws Exception {
+        try (PgliteControlChannel channel = PgliteControlChannel.open()) {
+            Socket helper = new Socket("127.0.0.1", channel.port());
+            DataInputStream in = new DataInputStream(helper.getInputStream());
+            DataOutputStream out = new DataOutputStream(helper.getOutputStream());
+            hello(out, channel.token());
+            writeFrame(out, "{\"event\":\"READY\"}");
+            channel.ready().get(5, TimeUnit.SECONDS);
+
+            CompletableFuture<Map<String, Object>> failed = CompletableFuture.supplyAsync(
+                    () -> channel.request("vacuum", Map.of("database", "postgres"), Duration.ofSeconds(5)));
+            Map<String, Object> request = PgliteJson.parseObject(readFrame(in));
+            writeFrame(out, "{\"event\":\"RESPONSE\",\"id\":" + request.get("id") + ",\"ok\":false,\"error\":\"busy\"}");
+            assertThatThrownBy(failed::join).hasRootCauseMessage("PGlite helper failed 'vacuum': busy");
+
+            CompletableFuture<Map<String, Object>> orphaned = CompletableFuture.supplyAsync(
+                    () -> channel.request("ping", Map.of(), Duration.ofSeconds(5)));
+            readFrame(in);
+            helper.close();
+            assertThatThrownBy(orphaned::join).hasRootCauseMessage("PGlite helper closed its control channel");
+        }
+    }
+
+    @Test
+    void connectionsWithoutTheTokenAreClosedAndTheHelperStillGetsIn() throws Exception {
+        try (PgliteControlChannel channel = PgliteControlChannel.open();
+             Socket intruder = new Socket("127.0.0.1", channel.port());
+             Socket helper = new Socket("127.0.0.1", channel.port())) {
+            DataOutputStream intruderOut = new DataOutputStream(intruder.getOutputStream());
+            hello(intruderOut, "not-the-token");
+            assertThat(intruder.getInputStream().read()).isEqualTo(-1);
+
+            DataOutputStream out = new DataOutputStream(helper.getOutputStream());
+            hello(out, channel.token());
+            writeFrame(out, "{\"event\":\"READY\"}");
+            assertThat(channel.ready().get(5, TimeUnit.SECONDS)).containsEntry("event", "READY");
+        }
+    }
+
+    private static void hello(DataOutputStream out, String token) throws IOException {
+        writeFrame(out, "{\"event\":\"HELLO\",\"token\":\"" + token + "\"}");
+    }
+
+    private static void writeFrame(DataOutputStream out, String json) throws IOException {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(body.length);
+        out.write(body);
+        out.flush();
+    }
+
+    private static String readFrame(DataInputStream in) throws IOException {
+        byte[] body = new byte[in.readInt()];
+        in.readFully(body);
+        return new String(body, StandardCharsets.UTF_8);
+    }
+}
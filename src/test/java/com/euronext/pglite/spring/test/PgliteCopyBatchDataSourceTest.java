@@ -0,0 +1,54 @@
+package com.euronext.pglite.spring.test;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PgliteCopyBatchDataSourceTest {
+
+    @Test
+    void rewritesPlainInsertsOnly() {
+        assertThat(PgliteCopyBatchDataSource.copyStatement(
+                "INSERT INTO sample_people (person_id, full_name) VALUES (?, ?)"))
+                .isEqualTo("COPY sample_people (person_id, full_name) FROM STDIN");
+        assertThat(PgliteCopyBatchDataSource.copyStatement(
+                "insert into public.\"People\"(id,name) values(?,?);"))
+                .isEqualTo("COPY public.\"People\" (id,name) FROM STDIN");
+
+        assertThat(PgliteCopyBatchDataSource.copyStatement(
+                "INSERT INTO t (a, b) VALUES (?, 'fixed')")).isNull();
+        assertThat(PgliteCopyBatchDataSource.copyStatement(
+                "INSERT INTO t (a, b) VALUES (?)")).isNull();
+        assertThat(PgliteCopyBatchDataSource.copyStatement(
+                "INSERT INTO t (a) VALUES (?) ON CONFLICT DO NOTHING")).isNull();
+        assertThat(PgliteCopyBatchDataSource.copyStatement(
+                "INSERT INTO t (a) VALUES (?) RETURNING a")).isNull();
+        assertThat(PgliteCopyBatchDataSource.copyStatement("UPDATE t SET a = ?")).isNull();
+    }
+
+    @Test
+    void encodesValuesInCopyTextFormat() {
+        assertThat(PgliteCopyBatchDataSource.encode(null)).isEqualTo("\\N");
+        assertThat(PgliteCopyBatchDataSource.encode("tab\there\nback\\slash"))
+                .isEqualTo("tab\\there\\nback\\\\slash");
+        assertThat(PgliteCopyBatchDataSource.encode(true)).isEqualTo("t");
+        assertThat(PgliteCopyBatchDataSource.encode(new BigDecimal("1E+3"))).isEqualTo("1000");
+        assertThat(PgliteCopyBatchDataSource.encode(LocalDate.of(2024, 2, 29))).isEqualTo("2024-02-29");
+        assertThat(PgliteCopyBatchDataSource.encode(new byte[]{1, (byte) 0xff})).isEqualTo("\\\\x01ff");
+        assertThat(PgliteCopyBatchDataSource.encode(List.of(1, 2))).isNull();
+    }
+
+    @Test
+    void closesThePoolItWraps() throws Exception {
+        HikariDataSource pool = new HikariDataSource();
+
+        new PgliteCopyBatchDataSource(new PgliteUnloggedTablesDataSource(pool)).close();
+
+        assertThat(pool.isClosed()).isTrue();
+    }
+}
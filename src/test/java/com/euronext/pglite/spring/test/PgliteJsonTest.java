@@ -0,0 +1,43 @@
+package com.euronext.pglite.spring.test;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PgliteJsonTest {
+
+    @Test
+    void roundTripsHelperMessages() {
+        Map<String, Object> message = new LinkedHashMap<>();
+        message.put("id", 7L);
+        message.put("cmd", "snapshot");
+        message.put("name", "quote\" and \\ slash\n");
+        message.put("flags", List.of(true, false));
+        message.put("missing", null);
+
+        String json = PgliteJson.write(message);
+        assertThat(PgliteJson.parseObject(json)).isEqualTo(message);
+    }
+
+    @Test
+    void parsesNumbersAndUnicodeEscapes() {
+        Map<String, Object> parsed = PgliteJson.parseObject(
+                "{ \"event\": \"RESPONSE\", \"id\": 3, \"rss\": 1.5e3, \"text\": \"caf\\u00e9\" }");
+        assertThat(parsed).containsEntry("id", 3L)
+                .containsEntry("rss", 1500.0)
+                .containsEntry("text", "café");
+    }
+
+    @Test
+    void rejectsMalformedInput() {
+        assertThatThrownBy(() -> PgliteJson.parseObject("{\"event\": }"))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> PgliteJson.parseObject("[1, 2]"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,25 @@
+package com.euronext.pglite.spring.test;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PgliteRollbackDataSourceTest {
+
+    @Test
+    void rewritesTransactionControlToSavepoints() {
+        assertThat(PgliteRollbackDataSource.rewrite("BEGIN")).isEqualTo("SAVEPOINT pglite_test_tx");
+        assertThat(PgliteRollbackDataSource.rewrite("start transaction isolation level serializable;"))
+                .isEqualTo("SAVEPOINT pglite_test_tx");
+        assertThat(PgliteRollbackDataSource.rewrite("commit work"))
+                .isEqualTo("RELEASE SAVEPOINT pglite_test_tx; SAVEPOINT pglite_test_tx");
+        assertThat(PgliteRollbackDataSource.rewrite(" END; ")).isEqualTo("RELEASE SAVEPOINT pglite_test_tx; SAVEPOINT pglite_test_tx");
+        assertThat(PgliteRollbackDataSource.rewrite("ROLLBACK")).isEqualTo("ROLLBACK TO SAVEPOINT pglite_test_tx");
+        assertThat(PgliteRollbackDataSource.rewrite("abort transaction")).isEqualTo("ROLLBACK TO SAVEPOINT pglite_test_tx");
+
+        assertThat(PgliteRollbackDataSource.rewrite("ROLLBACK TO SAVEPOINT mine")).isEqualTo("ROLLBACK TO SAVEPOINT mine");
+        assertThat(PgliteRollbackDataSource.rewrite("BEGIN_DATE")).isEqualTo("BEGIN_DATE");
+        assertThat(PgliteRollbackDataSource.rewrite("COMMIT PREPARED 'x'")).isEqualTo("COMMIT PREPARED 'x'");
+        assertThat(PgliteRollbackDataSource.rewrite("SELECT 1")).isEqualTo("SELECT 1");
+    }
+}
@@ -0,0 +1,83 @@
+package com.euronext.pglite.spring.test;
+
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringJUnitConfig(PgliteAutoConfigurationIntegrationTest.LiquibaseTestConfiguration.class)
+@ImportAutoConfiguration(PgliteAutoConfiguration.class)
+@PgliteTest(isolation = PgliteTest.Isolation.ROLLBACK)
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class PgliteRollbackIsolationIntegrationTest {
+
+    @Autowired
+    DataSource dataSource;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Test
+    @Order(1)
+    void firstTestCommitsAndRollsBackInternally() throws Exception {
+        try (Connection connection = dataSource.getConnection()) {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("DELETE FROM sample_people");
+            }
+            connection.commit();
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("CREATE TABLE scratch (id INT)");
+                statement.execute("ROLLBACK");
+                statement.execute("BEGIN");
+                statement.execute("INSERT INTO sample_people (person_id, full_name) VALUES (99, 'Kept')");
+                statement.execute("COMMIT");
+            }
+        }
+        assertThat(count()).isEqualTo(1);
+        assertThat(scratchTables()).isZero();
+    }
+
+    @Test
+    @Order(2)
+    void secondTestSeesMigratedStateAgain() {
+        assertThat(count()).isEqualTo(2);
+    }
+
+    @Test
+    @Order(3)
+    void failedAutoCommitStatementDoesNotAbortLaterOnes() throws Exception {
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(true);
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("INSERT INTO sample_people (person_id, full_name) VALUES (3, 'Carol')");
+                assertThatThrownBy(() -> statement.execute("INSERT INTO sample_people (person_id, full_name) VALUES (1, 'Duplicate')"))
+                        .isInstanceOf(SQLException.class)
+                        .satisfies(ex -> assertThat(((SQLException) ex).getSQLState()).isEqualTo("23505"));
+                statement.execute("INSERT INTO sample_people (person_id, full_name) VALUES (4, 'Dave')");
+            }
+            connection.setAutoCommit(false);
+        }
+        assertThat(count()).isEqualTo(4);
+    }
+
+    private int count() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM sample_people", Integer.class);
+    }
+
+    private int scratchTables() {
+        return jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM information_schema.tables WHERE table_name = 'scratch'", Integer.class);
+    }
+}
@@ -80,6 +80,25 @@ class PgliteServerProcessDownloadTest {
         }
     }
 
+    @Test
+    void reusesExtractedArchiveOnSubsequentStarts() throws Exception {
+        String checksum = computeSha256Hex(runtimeZip);
+        Path cacheDir = Files.createTempDirectory("pglite-cache");
+
+        Path first;
+        try (PgliteServerProcess process = newProcess(cacheDir, checksum)) {
+            first = invokeEnsureRuntime(process, Files.createTempDirectory("pglite-runtime-root"));
+        }
+        long firstModified = Files.getLastModifiedTime(first).toMillis();
+
+        try (PgliteServerProcess process = newProcess(cacheDir, checksum)) {
+            Path second = invokeEnsureRuntime(process, Files.createTempDirectory("pglite-runtime-root"));
+            assertThat(second).isEqualTo(first);
+            assertThat(Files.getLastModifiedTime(second).toMillis()).isEqualTo(firstModified);
+            assertThat(second.getParent().resolveSibling(".pglite-extracted")).isRegularFile();
+        }
+    }
+
     @Test
     void failsWhenChecksumMismatch() throws Exception {
         try (PgliteServerProcess process = new PgliteServerProcess(
@@ -104,6 +123,22 @@ class PgliteServerProcessDownloadTest {
         }
     }
 
+    private PgliteServerProcess newProcess(Path cacheDir, String checksum) {
+        return new PgliteServerProcess(
+                "127.0.0.1",
+                0,
+                Duration.ofSeconds(10),
+                null,
+                null,
+                "http://localhost:" + port + "/runtime-{os}-{arch}.zip",
+                cacheDir.toString(),
+                checksum,
+                "postgres",
+                "",
+                PgliteProperties.LogLevel.WARNING
+        );
+    }
+
     private Path invokeEnsureRuntime(PgliteServerProcess process, Path runtimeRoot) throws Exception {
         Method method = PgliteServerProcess.class.getDeclaredMethod("ensureRuntimeForCurrentPlatform", Path.class);
         method.setAccessible(true);
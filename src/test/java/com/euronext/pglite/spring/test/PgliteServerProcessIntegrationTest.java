@@ -2,16 +2,30 @@ package com.euronext.pglite.spring.test;
 
 import liquibase.integration.spring.SpringLiquibase;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.datasource.SingleConnectionDataSource;
 import org.springframework.jdbc.datasource.TransactionAwareDataSourceProxy;
 
 import javax.sql.DataSource;
 import java.sql.Connection;
+import java.sql.DriverManager;
 import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 class PgliteServerProcessIntegrationTest {
 
@@ -38,12 +52,174 @@ class PgliteServerProcessIntegrationTest {
         }
     }
 
+    @Test
+    void imageBootModeSavesImageOnceAndBootsLaterHelpersFromIt(@TempDir Path cacheDir) throws Exception {
+        PgliteProperties props = new PgliteProperties();
+        props.setRuntimeCacheDir(cacheDir.toString());
+        props.setBootMode(PgliteProperties.BootMode.IMAGE);
+        Path images = cacheDir.resolve("boot-images");
+
+        try (PgliteServerProcess first = new PgliteServerProcess(props)) {
+            first.start();
+        }
+        List<Path> saved;
+        try (Stream<Path> files = Files.list(images)) {
+            saved = files.toList();
+        }
+        assertThat(saved).singleElement()
+                .satisfies(image -> assertThat(image.getFileName().toString()).matches("pglite-.+\\.tar"));
+        FileTime written = Files.getLastModifiedTime(saved.get(0));
+
+        try (PgliteServerProcess second = new PgliteServerProcess(props)) {
+            second.start();
+            Integer answer = new JdbcTemplate(createDataSource(second)).queryForObject("SELECT 41 + 1", Integer.class);
+            assertThat(answer).isEqualTo(42);
+        }
+        assertThat(Files.getLastModifiedTime(saved.get(0))).isEqualTo(written);
+    }
+
+    @Test
+    void closeShutsTheHelperDownThroughItsControlChannel() throws Exception {
+        PgliteServerProcess server = new PgliteServerProcess(new PgliteProperties());
+        server.start();
+        assertThat(PgliteShutdown.isRegistered(server)).isTrue();
+        String url = server.jdbcUrl("postgres", "sslmode=disable");
+
+        long started = System.nanoTime();
+        server.close();
+
+        // an acknowledged shutdown never waits for the SIGTERM fallback
+        assertThat(Duration.ofNanos(System.nanoTime() - started)).isLessThan(Duration.ofSeconds(5));
+        assertThat(PgliteShutdown.isRegistered(server)).isFalse();
+        assertThatThrownBy(() -> DriverManager.getConnection(url, "postgres", "")).isInstanceOf(SQLException.class);
+        assertThatThrownBy(server::ping).hasMessageContaining("not running");
+    }
+
+    @Test
+    void crashedHelperRestartsOnTheSameEndpointWithItsSnapshots() throws Exception {
+        PgliteProperties props = new PgliteProperties();
+        props.setRestartRestoresSnapshot(true);
+
+        try (PgliteServerProcess server = new PgliteServerProcess(props)) {
+            server.start();
+            String url = server.jdbcUrl("postgres", "sslmode=disable");
+            try (Connection connection = DriverManager.getConnection(url, "postgres", "");
+                 Statement statement = connection.createStatement()) {
+                statement.execute("CREATE TABLE survivors (name text)");
+                statement.execute("INSERT INTO survivors VALUES ('baseline')");
+            }
+            server.snapshot("postgres", "baseline");
+            AtomicInteger restarted = new AtomicInteger();
+            server.addRestartListener(restarted::incrementAndGet);
+
+            server.processHandle().destroyForcibly();
+
+            long deadline = System.nanoTime() + Duration.ofSeconds(60).toNanos();
+            while (restarted.get() == 0 && System.nanoTime() < deadline) {
+                Thread.sleep(50);
+            }
+            assertThat(restarted).hasValue(1);
+            assertThat(server.restartCount()).isEqualTo(1);
+            assertThat(server.downtime()).isPositive();
+            assertThat(server.jdbcUrl("postgres", "sslmode=disable")).isEqualTo(url);
+            server.restore("postgres", "baseline");
+            try (Connection connection = DriverManager.getConnection(url, "postgres", "");
+                 Statement statement = connection.createStatement();
+                 ResultSet rows = statement.executeQuery("SELECT name FROM survivors")) {
+                assertThat(rows.next()).isTrue();
+                assertThat(rows.getString(1)).isEqualTo("baseline");
+            }
+        }
+
+        props.setMaxRestarts(-1);
+        assertThatThrownBy(() -> new PgliteServerProcess(props))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("max-restarts");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void statementCacheReusesThePlanOfInlinedSimpleQueries() throws Exception {
+        PgliteProperties props = new PgliteProperties();
+        props.setStatementCacheSize(8);
+
+        try (PgliteServerProcess server = new PgliteServerProcess(props)) {
+            server.start();
+            SingleConnectionDataSource single = new SingleConnectionDataSource(
+                    server.jdbcUrl("postgres", "sslmode=disable&preferQueryMode=simple"), "postgres", "", true);
+            JdbcTemplate jdbc = new JdbcTemplate(single);
+            for (int i = 1; i <= 3; i++) {
+                assertThat(jdbc.queryForObject("SELECT ? * 10", Integer.class, i)).isEqualTo(i * 10);
+            }
+            single.destroy();
+
+            Map<String, Object> databases = (Map<String, Object>) server.stats().get("databases");
+            Map<String, Object> postgres = (Map<String, Object>) databases.get("postgres");
+            assertThat((Map<String, Object>) postgres.get("statementCache"))
+                    .containsEntry("hits", 2)
+                    .containsEntry("misses", 1)
+                    .containsEntry("capacity", 8);
+        }
+
+        props.setStatementCacheSize(-1);
+        assertThatThrownBy(() -> new PgliteServerProcess(props))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("statement-cache-size");
+    }
+
+    @Test
+    void fetchRowsSplitsUnlimitedExecutesWithoutChangingTheResult() throws Exception {
+        PgliteProperties props = new PgliteProperties();
+        props.setFetchRows(2);
+
+        try (PgliteServerProcess server = new PgliteServerProcess(props)) {
+            server.start();
+            try (Connection connection = createDataSource(server).getConnection()) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("CREATE TABLE fetched (n int PRIMARY KEY)");
+                }
+                try (PreparedStatement insert = connection.prepareStatement(
+                        "INSERT INTO fetched SELECT generate_series(1, ?)", Statement.RETURN_GENERATED_KEYS)) {
+                    insert.setInt(1, 5);
+                    // RETURNING makes this a row-returning portal; its update count must cover every fetch
+                    assertThat(insert.executeUpdate()).isEqualTo(5);
+                }
+                List<Integer> all = new ArrayList<>();
+                try (PreparedStatement select = connection.prepareStatement("SELECT n FROM fetched ORDER BY n");
+                     ResultSet rows = select.executeQuery()) {
+                    while (rows.next()) {
+                        all.add(rows.getInt(1));
+                    }
+                }
+                assertThat(all).containsExactly(1, 2, 3, 4, 5);
+
+                // a client-side cursor keeps its own row limit and PortalSuspended
+                all.clear();
+                try (PreparedStatement select = connection.prepareStatement("SELECT n FROM fetched ORDER BY n")) {
+                    select.setFetchSize(3);
+                    try (ResultSet rows = select.executeQuery()) {
+                        while (rows.next()) {
+                            all.add(rows.getInt(1));
+                        }
+                    }
+                }
+                assertThat(all).containsExactly(1, 2, 3, 4, 5);
+                connection.rollback();
+            }
+        }
+
+        props.setFetchRows(-1);
+        assertThatThrownBy(() -> new PgliteServerProcess(props))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("fetch-rows");
+    }
+
     private DataSource createDataSource(PgliteServerProcess server) {
         SingleConnectionDataSource single = new SingleConnectionDataSource();
         single.setSuppressClose(true);
         single.setAutoCommit(false);
         single.setDriverClassName("org.postgresql.Driver");
-        single.setUrl(server.jdbcUrl("postgres", "sslmode=disable&preferQueryMode=simple"));
+        single.setUrl(server.jdbcUrl("postgres", "sslmode=disable"));
         single.setUsername("postgres");
         single.setPassword("");
         return new TransactionAwareDataSourceProxy(single);
@@ -80,6 +256,18 @@ class PgliteServerProcessIntegrationTest {
                 assertThat(delete.executeUpdate()).isEqualTo(1);
             }
 
+            // Past pgjdbc's prepareThreshold the driver switches to a named server-side statement
+            try (PreparedStatement select = connection.prepareStatement(
+                    "SELECT full_name FROM sample_people WHERE person_id = ?")) {
+                for (int i = 0; i < 10; i++) {
+                    select.setInt(1, 3);
+                    try (ResultSet rs = select.executeQuery()) {
+                        assertThat(rs.next()).isTrue();
+                        assertThat(rs.getString(1)).isEqualTo("Charlie");
+                    }
+                }
+            }
+
             connection.commit();
         }
 
@@ -0,0 +1,75 @@
+package com.euronext.pglite.spring.test;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PgliteServerProcessTest {
+
+    @Test
+    void compileCachePointsNodeIntoRuntimeCacheDir() {
+        PgliteProperties props = new PgliteProperties();
+        props.setRuntimeCacheDir("build-cache");
+        assertThat(new PgliteServerProcess(props).launchKey().environment()).doesNotContainKey("NODE_COMPILE_CACHE");
+
+        props.setCompileCache(true);
+        assertThat(new PgliteServerProcess(props).launchKey().environment())
+                .containsEntry("NODE_COMPILE_CACHE",
+                        Path.of("build-cache", "compile-cache").toAbsolutePath().toString());
+    }
+
+    @Test
+    void tuningBecomesNodeFlagsAndHelperEnvironment() {
+        PgliteProperties props = new PgliteProperties();
+        props.setNodeMaxOldSpaceSize(256);
+        props.setNodeMaxSemiSpaceSize(16);
+        props.setWasmMaxMemory(DataSize.ofMegabytes(512));
+        props.setInitialMemory(DataSize.ofMegabytes(64));
+        props.setPostgresSettings(Map.of("Work_Mem", "8MB"));
+
+        PgliteStandbyPool.LaunchKey key = new PgliteServerProcess(props).launchKey();
+        assertThat(key.nodeFlags()).containsExactly(
+                "--max-old-space-size=256", "--max-semi-space-size=16", "--wasm-max-mem-pages=8192");
+        assertThat(key.environment())
+                .containsEntry("PGLITE_INITIAL_MEMORY", Long.toString(64L * 1024 * 1024))
+                .containsEntry("PGLITE_SETTINGS_JSON", "{\"work_mem\":\"8MB\"}");
+
+        props.setInitialMemory(DataSize.ofBytes(100_000));
+        assertThatThrownBy(() -> new PgliteServerProcess(props))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("multiple of 64KB");
+        props.setInitialMemory(null);
+        props.setPostgresSettings(Map.of("work_mem = 1; DROP", "1"));
+        assertThatThrownBy(() -> new PgliteServerProcess(props))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("Invalid Postgres setting name");
+    }
+
+    @Test
+    void durabilityNonePresetsSettingsThatExplicitOnesOverride() {
+        PgliteProperties props = new PgliteProperties();
+        props.setDurability(PgliteProperties.Durability.NONE);
+        props.setPostgresSettings(Map.of("synchronous_commit", "local"));
+
+        assertThat(PgliteServerProcess.postgresSettings(props)).containsExactly(
+                Map.entry("fsync", "off"),
+                Map.entry("full_page_writes", "off"),
+                Map.entry("max_wal_senders", "0"),
+                Map.entry("synchronous_commit", "local"),
+                Map.entry("wal_level", "minimal"));
+    }
+
+    @Test
+    void compileCacheNeedsNode22Point1() {
+        assertThat(PgliteServerProcess.supportsCompileCache("22.0.0")).isFalse();
+        assertThat(PgliteServerProcess.supportsCompileCache("22.1.0")).isTrue();
+        assertThat(PgliteServerProcess.supportsCompileCache("v23.0.0")).isTrue();
+        // an unparseable version is given the benefit of the doubt
+        assertThat(PgliteServerProcess.supportsCompileCache("nightly")).isTrue();
+    }
+}
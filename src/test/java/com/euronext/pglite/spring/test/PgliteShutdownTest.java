@@ -0,0 +1,37 @@
+package com.euronext.pglite.spring.test;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PgliteShutdownTest {
+
+    @Test
+    void reaperDeletesDirectoriesInTheBackground(@TempDir Path tempDir) throws Exception {
+        Path directory = Files.createDirectories(tempDir.resolve("pglite-socket/nested"));
+        Files.writeString(directory.resolve("file"), "x");
+        directory.resolve("file").toFile().setWritable(false);
+
+        PgliteShutdown.reap(tempDir.resolve("pglite-socket"));
+
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        while (Files.exists(tempDir.resolve("pglite-socket")) && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(tempDir.resolve("pglite-socket")).doesNotExist();
+    }
+
+    @Test
+    void closedHelpersLeaveTheShutdownHook() throws Exception {
+        PgliteServerProcess server = new PgliteServerProcess(new PgliteProperties());
+        PgliteShutdown.register(server);
+        assertThat(PgliteShutdown.isRegistered(server)).isTrue();
+
+        server.close();
+        assertThat(PgliteShutdown.isRegistered(server)).isFalse();
+    }
+}
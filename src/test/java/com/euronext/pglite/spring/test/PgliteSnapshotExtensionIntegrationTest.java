@@ -0,0 +1,43 @@
+package com.euronext.pglite.spring.test;
+
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringJUnitConfig(PgliteAutoConfigurationIntegrationTest.LiquibaseTestConfiguration.class)
+@ImportAutoConfiguration(PgliteAutoConfiguration.class)
+@PgliteTest(isolation = PgliteTest.Isolation.SNAPSHOT)
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class PgliteSnapshotExtensionIntegrationTest {
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Test
+    @Order(1)
+    void firstTestChangesData() {
+        jdbcTemplate.update("DELETE FROM sample_people");
+        jdbcTemplate.update("CREATE TABLE scratch (id INT)");
+        assertThat(count()).isZero();
+    }
+
+    @Test
+    @Order(2)
+    void secondTestSeesMigratedStateAgain() {
+        assertThat(count()).isEqualTo(2);
+        Integer scratchTables = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM information_schema.tables WHERE table_name = 'scratch'", Integer.class);
+        assertThat(scratchTables).isZero();
+    }
+
+    private int count() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM sample_people", Integer.class);
+    }
+}
@@ -0,0 +1,86 @@
+package com.euronext.pglite.spring.test;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DisabledOnOs(OS.WINDOWS)
+class PgliteUnixSocketFactoryTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void connectsToSocketPathRegardlessOfRequestedAddress() throws Exception {
+        Path path = tempDir.resolve(".s.PGSQL.5432");
+        try (ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+            server.bind(UnixDomainSocketAddress.of(path));
+
+            PgliteUnixSocketFactory factory = new PgliteUnixSocketFactory(path.toString());
+            try (Socket socket = factory.createSocket()) {
+                assertThat(socket.isConnected()).isFalse();
+                // pgjdbc passes the host and port from the JDBC URL
+                socket.connect(new InetSocketAddress("localhost", 5432), 1000);
+                socket.setTcpNoDelay(true);
+                socket.setSoTimeout(500);
+                assertThat(socket.isConnected()).isTrue();
+                assertThat(socket.getSoTimeout()).isEqualTo(500);
+
+                try (SocketChannel accepted = server.accept()) {
+                    OutputStream out = socket.getOutputStream();
+                    out.write("ping".getBytes(StandardCharsets.US_ASCII));
+                    out.flush();
+                    ByteBuffer received = ByteBuffer.allocate(4);
+                    while (received.hasRemaining()) {
+                        accepted.read(received);
+                    }
+                    assertThat(new String(received.array(), StandardCharsets.US_ASCII)).isEqualTo("ping");
+
+                    accepted.write(ByteBuffer.wrap("pong".getBytes(StandardCharsets.US_ASCII)));
+                    InputStream in = socket.getInputStream();
+                    assertThat(new String(in.readNBytes(4), StandardCharsets.US_ASCII)).isEqualTo("pong");
+                }
+            }
+        }
+    }
+
+    @Test
+    void readsTimeOutAfterSoTimeoutAndLaterDataIsStillDelivered() throws Exception {
+        Path path = tempDir.resolve(".s.PGSQL.5433");
+        try (ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+            server.bind(UnixDomainSocketAddress.of(path));
+
+            try (Socket socket = new PgliteUnixSocketFactory(path.toString()).createSocket("localhost", 5432);
+                 SocketChannel accepted = server.accept()) {
+                socket.setSoTimeout(200);
+                InputStream in = socket.getInputStream();
+                assertThat(in.available()).isZero();
+
+                long started = System.nanoTime();
+                assertThatThrownBy(in::read).isInstanceOf(SocketTimeoutException.class);
+                assertThat(Duration.ofNanos(System.nanoTime() - started)).isGreaterThanOrEqualTo(Duration.ofMillis(150));
+
+                accepted.write(ByteBuffer.wrap("late".getBytes(StandardCharsets.US_ASCII)));
+                assertThat(new String(in.readNBytes(4), StandardCharsets.US_ASCII)).isEqualTo("late");
+            }
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.euronext.pglite.spring.test;
+
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PgliteUnloggedTablesDataSourceTest {
+
+    @Test
+    void rewritesCreateTableStatementsOnly() {
+        assertThat(PgliteUnloggedTablesDataSource.rewrite("CREATE TABLE people (id INT)"))
+                .isEqualTo("CREATE UNLOGGED TABLE people (id INT)");
+        assertThat(PgliteUnloggedTablesDataSource.rewrite("  create\ntable if not exists t (a int); create table u as select 1"))
+                .isEqualTo("  CREATE\nUNLOGGED TABLE if not exists t (a int); CREATE UNLOGGED TABLE u as select 1");
+
+        assertThat(PgliteUnloggedTablesDataSource.rewrite("CREATE TEMP TABLE t (a int)")).isEqualTo("CREATE TEMP TABLE t (a int)");
+        assertThat(PgliteUnloggedTablesDataSource.rewrite("CREATE TABLE m (a int) PARTITION BY RANGE (a)"))
+                .isEqualTo("CREATE TABLE m (a int) PARTITION BY RANGE (a)");
+        assertThat(PgliteUnloggedTablesDataSource.rewrite("CREATE TABLE m1 PARTITION OF m FOR VALUES FROM (0) TO (9)"))
+                .isEqualTo("CREATE TABLE m1 PARTITION OF m FOR VALUES FROM (0) TO (9)");
+        assertThat(PgliteUnloggedTablesDataSource.rewrite("ALTER TABLE t ADD COLUMN b int")).isEqualTo("ALTER TABLE t ADD COLUMN b int");
+    }
+
+    @Test
+    void rewritesSqlPassedToStatementsOfTheConnection() throws Exception {
+        List<String> executed = new ArrayList<>();
+        Statement statement = (Statement) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Statement.class},
+                (proxy, method, args) -> {
+                    if ("execute".equals(method.getName())) {
+                        executed.add((String) args[0]);
+                    }
+                    return method.getReturnType() == boolean.class ? false : null;
+                });
+        Connection connection = (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> statement);
+        DataSource target = (DataSource) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{DataSource.class},
+                (proxy, method, args) -> connection);
+
+        try (Statement wrapped = new PgliteUnloggedTablesDataSource(target).getConnection().createStatement()) {
+            wrapped.execute("create table audit (id int)");
+        }
+
+        assertThat(executed).containsExactly("CREATE UNLOGGED TABLE audit (id int)");
+    }
+}
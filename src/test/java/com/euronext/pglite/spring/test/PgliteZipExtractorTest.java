@@ -0,0 +1,70 @@
+package com.euronext.pglite.spring.test;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PgliteZipExtractorTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void extractsManySmallFilesAndLargeEntries() throws IOException {
+        byte[] large = new byte[3 * 1024 * 1024 + 17];
+        new Random(42).nextBytes(large);
+        Path archive = tempDir.resolve("runtime.zip");
+        try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(archive))) {
+            zip.putNextEntry(new ZipEntry("node_modules/"));
+            zip.closeEntry();
+            for (int i = 0; i < 500; i++) {
+                // no directory entries for these: parents must still be created
+                zip.putNextEntry(new ZipEntry("node_modules/pkg" + (i % 25) + "/file" + i + ".js"));
+                zip.write(("module.exports = " + i + ";").getBytes(StandardCharsets.UTF_8));
+                zip.closeEntry();
+            }
+            zip.putNextEntry(new ZipEntry("node_modules/@electric-sql/pglite/dist/pglite.wasm"));
+            zip.write(large);
+            zip.closeEntry();
+            zip.putNextEntry(new ZipEntry("bin/node"));
+            zip.write(new byte[]{1, 2, 3});
+            zip.closeEntry();
+        }
+
+        Path target = tempDir.resolve("out");
+        PgliteZipExtractor.extract(archive, target, name -> name.equals("bin/node"));
+
+        assertThat(target.resolve("node_modules/pkg7/file407.js")).hasContent("module.exports = 407;");
+        assertThat(Files.readAllBytes(target.resolve("node_modules/@electric-sql/pglite/dist/pglite.wasm")))
+                .isEqualTo(large);
+        try (var files = Files.walk(target)) {
+            assertThat(files.filter(Files::isRegularFile).count()).isEqualTo(502);
+        }
+        assertThat(target.resolve("bin/node").toFile().canExecute()).isTrue();
+    }
+
+    @Test
+    void rejectsEntriesOutsideTheTarget() throws IOException {
+        Path archive = tempDir.resolve("evil.zip");
+        try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(archive))) {
+            zip.putNextEntry(new ZipEntry("../escaped.txt"));
+            zip.write(1);
+            zip.closeEntry();
+        }
+
+        assertThatThrownBy(() -> PgliteZipExtractor.extract(archive, tempDir.resolve("out"), name -> false))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("outside target dir");
+        assertThat(tempDir.resolve("escaped.txt")).doesNotExist();
+    }
+}
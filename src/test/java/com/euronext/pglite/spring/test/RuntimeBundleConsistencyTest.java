@@ -8,16 +8,19 @@ import org.junit.jupiter.api.Test;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Locale;
+import java.util.List;
 import java.util.Map;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
 
 class RuntimeBundleConsistencyTest {
 
@@ -83,6 +86,40 @@ class RuntimeBundleConsistencyTest {
         }
     }
 
+    @Test
+    void slimRuntimeContainsEveryTracedFileAndNothingBuildOnly() throws Exception {
+        try (ZipFile zipFile = new ZipFile(runtimeZip.toFile())) {
+            ZipEntry manifest = zipFile.getEntry("runtime-manifest.txt");
+            assumeTrue(manifest != null, "runtime.zip was built with SLIM_RUNTIME=0");
+
+            List<String> traced;
+            try (InputStream in = zipFile.getInputStream(manifest)) {
+                traced = new String(in.readAllBytes(), StandardCharsets.UTF_8).lines()
+                        .filter(line -> !line.isBlank())
+                        .toList();
+            }
+            assertThat(traced)
+                    .as("manifest must list the PGlite wasm module and its data file")
+                    .anyMatch(path -> path.endsWith("/pglite.wasm"))
+                    .anyMatch(path -> path.endsWith("/pglite.data"));
+            for (String path : traced) {
+                assertThat(zipFile.getEntry(path))
+                        .as("runtime.zip should contain traced file %s", path)
+                        .isNotNull();
+            }
+
+            List<String> moduleFiles = zipFile.stream()
+                    .filter(entry -> !entry.isDirectory())
+                    .map(ZipEntry::getName)
+                    .filter(name -> name.startsWith("node_modules/"))
+                    .toList();
+            assertThat(moduleFiles)
+                    .as("slim runtime.zip should ship exactly the files listed in the manifest")
+                    .containsExactlyInAnyOrderElementsOf(traced)
+                    .noneMatch(name -> name.endsWith(".d.ts") || name.endsWith(".map"));
+        }
+    }
+
     private Map<String, String> readExpectedModuleVersions() throws IOException {
         try (InputStream lockStream = PgliteServerProcess.class.getResourceAsStream("/pglite/package-lock.json")) {
             if (lockStream == null) {